@@ -0,0 +1,178 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout.benchmark;
+
+import android.content.Context;
+import android.os.Build;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+import cn.refactor.multistatelayout.MultiStateLayout;
+
+/**
+ * On-device cost of MultiStateLayout state transitions. Each benchmark runs on
+ * the main thread, results are logged and written as JSON to the external files directory
+ * of the test package, e.g. pulled with
+ * adb pull /sdcard/Android/data/cn.refactor.multistatelayout.benchmark.test/files/multistatelayout-benchmark.json
+ */
+@RunWith(AndroidJUnit4.class)
+public class MultiStateLayoutBenchmark {
+
+    private static final String TAG = "MultiStateBenchmark";
+    private static final String REPORT_FILE = "multistatelayout-benchmark.json";
+    private static final int CUSTOM_STATE_COUNT = 100;
+    private static final int FIRST_CUSTOM_STATE_KEY = 100;
+
+    private static final BenchmarkReport sReport = new BenchmarkReport();
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        Context context = InstrumentationRegistry.getTargetContext();
+        sReport.putContext("model", Build.MODEL);
+        sReport.putContext("sdk", String.valueOf(Build.VERSION.SDK_INT));
+        File dir = context.getExternalFilesDir(null);
+        File file = new File(null == dir ? context.getFilesDir() : dir, REPORT_FILE);
+        sReport.writeTo(file);
+        Log.i(TAG, "Results written to " + file);
+    }
+
+    @Test
+    public void setStateCold() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BenchmarkState state = new BenchmarkState("setState cold");
+                while (state.keepRunning()) {
+                    state.pauseTiming();
+                    MultiStateLayout layout = newLayout(false);
+                    state.resumeTiming();
+                    layout.setState(MultiStateLayout.State.EMPTY);
+                }
+                report(state);
+            }
+        });
+    }
+
+    @Test
+    public void setStateWarm() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                MultiStateLayout layout = newLayout(false);
+                layout.setState(MultiStateLayout.State.EMPTY);
+                BenchmarkState state = new BenchmarkState("setState warm");
+                boolean empty = false;
+                while (state.keepRunning()) {
+                    empty = !empty;
+                    layout.setState(empty ? MultiStateLayout.State.EMPTY : MultiStateLayout.State.CONTENT);
+                }
+                report(state);
+            }
+        });
+    }
+
+    @Test
+    public void setStateWarmAnimated() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                MultiStateLayout layout = newLayout(true);
+                layout.setState(MultiStateLayout.State.EMPTY);
+                BenchmarkState state = new BenchmarkState("setState warm animated");
+                boolean empty = false;
+                while (state.keepRunning()) {
+                    empty = !empty;
+                    // covers the animator setup and start of the incoming view
+                    layout.setState(empty ? MultiStateLayout.State.EMPTY : MultiStateLayout.State.CONTENT);
+                }
+                report(state);
+            }
+        });
+    }
+
+    @Test
+    public void getEmptyViewLazyInflate() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BenchmarkState state = new BenchmarkState("getEmptyView lazy inflate");
+                while (state.keepRunning()) {
+                    state.pauseTiming();
+                    MultiStateLayout layout = newLayout(false);
+                    state.resumeTiming();
+                    layout.getEmptyView();
+                }
+                report(state);
+            }
+        });
+    }
+
+    @Test
+    public void putCustomStateViews() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                BenchmarkState state = new BenchmarkState("putCustomStateView x" + CUSTOM_STATE_COUNT);
+                View[] views = new View[CUSTOM_STATE_COUNT];
+                while (state.keepRunning()) {
+                    state.pauseTiming();
+                    MultiStateLayout layout = newLayout(false);
+                    for (int i = 0; i < CUSTOM_STATE_COUNT; i++) {
+                        views[i] = new TextView(context);
+                    }
+                    state.resumeTiming();
+                    for (int i = 0; i < CUSTOM_STATE_COUNT; i++) {
+                        layout.putCustomStateView(FIRST_CUSTOM_STATE_KEY + i, views[i]);
+                    }
+                    layout.setCustomState(FIRST_CUSTOM_STATE_KEY + CUSTOM_STATE_COUNT - 1);
+                }
+                report(state);
+            }
+        });
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    private static void report(BenchmarkState state) {
+        BenchmarkResult result = state.getResult();
+        Log.i(TAG, result.toString());
+        sReport.add(result);
+    }
+
+    private static MultiStateLayout newLayout(boolean animEnable) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        MultiStateLayout layout = new MultiStateLayout(context);
+        layout.setEmptyView(android.R.layout.simple_list_item_1);
+        layout.setAnimEnable(animEnable);
+        layout.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, 1080, 1920);
+        return layout;
+    }
+}
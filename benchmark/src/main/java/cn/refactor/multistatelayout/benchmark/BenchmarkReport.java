@@ -0,0 +1,132 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects benchmark results and writes them as JSON, so that runs of
+ * different releases can be compared:
+ * <pre>
+ * {"context": {"model": "..."},
+ *  "benchmarks": [{"name": "...", "iterations": 200,
+ *                  "timeNs": {"min": 1, "median": 2, "mean": 2, "max": 3},
+ *                  "allocationsPerIteration": 4.0}]}
+ * </pre>
+ * Plain Java, so that it can be unit tested without a device.
+ */
+public final class BenchmarkReport {
+
+    private final Map<String, String> mContext = new LinkedHashMap<>();
+    private final List<BenchmarkResult> mResults = new ArrayList<>();
+
+    /**
+     * Describe where the results come from, e.g. device model or library version.
+     */
+    public synchronized void putContext(String key, String value) {
+        mContext.put(key, value);
+    }
+
+    public synchronized void add(BenchmarkResult result) {
+        mResults.add(result);
+    }
+
+    public synchronized List<BenchmarkResult> getResults() {
+        return new ArrayList<>(mResults);
+    }
+
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{\"context\": {");
+        boolean first = true;
+        for (Map.Entry<String, String> entry : mContext.entrySet()) {
+            if (!first) {
+                json.append(", ");
+            }
+            first = false;
+            appendString(json, entry.getKey()).append(": ");
+            appendString(json, entry.getValue());
+        }
+        json.append("},\n \"benchmarks\": [");
+        for (int i = 0; i < mResults.size(); i++) {
+            BenchmarkResult result = mResults.get(i);
+            if (i > 0) {
+                json.append(",");
+            }
+            json.append("\n  {\"name\": ");
+            appendString(json, result.getName());
+            json.append(", \"iterations\": ").append(result.getIterations())
+                .append(", \"timeNs\": {\"min\": ").append(result.getMinNanos())
+                .append(", \"median\": ").append(result.getMedianNanos())
+                .append(", \"mean\": ").append(result.getMeanNanos())
+                .append(", \"max\": ").append(result.getMaxNanos())
+                .append("}, \"allocationsPerIteration\": ").append(result.getAllocationsPerIteration())
+                .append("}");
+        }
+        return json.append("]}\n").toString();
+    }
+
+    public void writeTo(File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(toJson());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static StringBuilder appendString(StringBuilder json, String value) {
+        if (null == value) {
+            return json.append("null");
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                    break;
+            }
+        }
+        return json.append('"');
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Timing statistics of a finished benchmark, in nanoseconds, with the
+ * allocations per iteration, -1 when allocations could not be counted.
+ */
+public final class BenchmarkResult {
+
+    private final String mName;
+    private final int mIterations;
+    private final long mMinNanos;
+    private final long mMedianNanos;
+    private final long mMeanNanos;
+    private final long mMaxNanos;
+    private final double mAllocationsPerIteration;
+
+    private BenchmarkResult(String name, int iterations, long minNanos, long medianNanos, long meanNanos,
+                            long maxNanos, double allocationsPerIteration) {
+        mName = name;
+        mIterations = iterations;
+        mMinNanos = minNanos;
+        mMedianNanos = medianNanos;
+        mMeanNanos = meanNanos;
+        mMaxNanos = maxNanos;
+        mAllocationsPerIteration = allocationsPerIteration;
+    }
+
+    /**
+     * @param name        benchmark name
+     * @param durations   duration of each iteration, sorted in place
+     * @param allocations allocations over all iterations, negative if unknown
+     * @return result
+     */
+    static BenchmarkResult of(String name, long[] durations, long allocations) {
+        Arrays.sort(durations);
+        long sum = 0;
+        for (long duration : durations) {
+            sum += duration;
+        }
+        int count = durations.length;
+        long median = count % 2 == 1 ? durations[count / 2] : (durations[count / 2 - 1] + durations[count / 2]) / 2;
+        return new BenchmarkResult(name, count, durations[0], median, sum / count, durations[count - 1],
+                allocations < 0 ? -1 : (double) allocations / count);
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getIterations() {
+        return mIterations;
+    }
+
+    public long getMinNanos() {
+        return mMinNanos;
+    }
+
+    public long getMedianNanos() {
+        return mMedianNanos;
+    }
+
+    public long getMeanNanos() {
+        return mMeanNanos;
+    }
+
+    public long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    public double getAllocationsPerIteration() {
+        return mAllocationsPerIteration;
+    }
+
+    @Override
+    public String toString() {
+        return mName + ": median " + mMedianNanos + " ns, min " + mMinNanos + " ns, "
+                + mAllocationsPerIteration + " allocations";
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Drives a benchmark loop, warming up first and then timing each iteration:
+ * <pre>
+ * BenchmarkState state = new BenchmarkState("setState");
+ * while (state.keepRunning()) {
+ *     layout.setState(MultiStateLayout.State.EMPTY);
+ * }
+ * report.add(state.getResult());
+ * </pre>
+ * Work between {@link #pauseTiming()} and {@link #resumeTiming()} is neither timed nor
+ * counted as allocation. Clock and allocation counter can be replaced for testing.
+ */
+public final class BenchmarkState {
+
+    public static final int DEFAULT_WARMUP_ITERATIONS = 20;
+    public static final int DEFAULT_ITERATIONS = 200;
+
+    public interface Clock {
+        long nanoTime();
+    }
+
+    public interface AllocationCounter {
+
+        /**
+         * Start counting allocations of the current thread.
+         */
+        void start();
+
+        /**
+         * @return allocations of the current thread since start, -1 if not supported
+         */
+        long count();
+
+        /**
+         * Stop counting.
+         */
+        void stop();
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final String mName;
+    private final int mWarmupIterations;
+    private final Clock mClock;
+    private final AllocationCounter mAllocationCounter;
+    private final long[] mDurations;
+
+    private int mIteration = -1;
+    private long mIterationStartTime;
+    private long mPausedTime;
+    private long mPauseStartTime;
+    private long mPausedAllocations;
+    private long mPauseStartAllocations;
+    private long mMeasureStartAllocations;
+    private long mAllocations = -1;
+    private boolean mPaused;
+    private boolean mFinished;
+
+    public BenchmarkState(String name) {
+        this(name, DEFAULT_WARMUP_ITERATIONS, DEFAULT_ITERATIONS, SYSTEM_CLOCK, new DebugAllocationCounter());
+    }
+
+    public BenchmarkState(String name, int warmupIterations, int iterations, Clock clock, AllocationCounter allocationCounter) {
+        if (iterations <= 0 || warmupIterations < 0) {
+            throw new IllegalArgumentException("iterations must be positive, warmup iterations not negative");
+        }
+        mName = name;
+        mWarmupIterations = warmupIterations;
+        mClock = clock;
+        mAllocationCounter = allocationCounter;
+        mDurations = new long[iterations];
+    }
+
+    /**
+     * Finish the running iteration and start the next one.
+     *
+     * @return true while there is an iteration to run
+     */
+    public boolean keepRunning() {
+        if (mFinished) {
+            return false;
+        }
+        long now = mClock.nanoTime();
+        if (mPaused) {
+            throw new IllegalStateException("Iteration ended while timing is paused");
+        }
+        int measured = mIteration - mWarmupIterations;
+        if (measured >= 0) {
+            mDurations[measured] = now - mIterationStartTime - mPausedTime;
+        }
+        mIteration++;
+        measured++;
+        if (measured == 0) {
+            mAllocationCounter.start();
+            mMeasureStartAllocations = mAllocationCounter.count();
+        } else if (measured == mDurations.length) {
+            long endAllocations = mAllocationCounter.count();
+            mAllocationCounter.stop();
+            if (mMeasureStartAllocations >= 0 && endAllocations >= 0) {
+                mAllocations = endAllocations - mMeasureStartAllocations - mPausedAllocations;
+            }
+            mFinished = true;
+            return false;
+        }
+        mPausedTime = 0;
+        mIterationStartTime = mClock.nanoTime();
+        return true;
+    }
+
+    /**
+     * Stop timing, e.g. to set up the next iteration.
+     */
+    public void pauseTiming() {
+        if (mPaused) {
+            throw new IllegalStateException("Timing is already paused");
+        }
+        mPaused = true;
+        mPauseStartTime = mClock.nanoTime();
+        mPauseStartAllocations = isMeasuring() ? mAllocationCounter.count() : 0;
+    }
+
+    /**
+     * Resume timing stopped by {@link #pauseTiming()}.
+     */
+    public void resumeTiming() {
+        if (!mPaused) {
+            throw new IllegalStateException("Timing is not paused");
+        }
+        if (isMeasuring()) {
+            mPausedAllocations += mAllocationCounter.count() - mPauseStartAllocations;
+        }
+        mPaused = false;
+        mPausedTime += mClock.nanoTime() - mPauseStartTime;
+    }
+
+    /**
+     * @return the result, once {@link #keepRunning()} returned false
+     */
+    public BenchmarkResult getResult() {
+        if (!mFinished) {
+            throw new IllegalStateException("Benchmark " + mName + " is not finished");
+        }
+        return BenchmarkResult.of(mName, Arrays.copyOf(mDurations, mDurations.length), mAllocations);
+    }
+
+    private boolean isMeasuring() {
+        return mIteration >= mWarmupIterations && !mFinished;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout.benchmark;
+
+import android.os.Debug;
+
+/**
+ * Counts the allocations of the current thread through android.os.Debug.
+ * Counting is process-wide and may already be on, e.g. for the allocation strict mode
+ * of MultiStateLayout, in which case it is left on when the benchmark stops.
+ */
+@SuppressWarnings("deprecation")
+final class DebugAllocationCounter implements BenchmarkState.AllocationCounter {
+
+    /** written to so that the probing allocation can't be optimized away */
+    private static volatile Object sProbe;
+
+    private boolean mStarted;
+
+    @Override
+    public void start() {
+        mStarted = !isCounting();
+        Debug.resetThreadAllocCount();
+        if (mStarted) {
+            Debug.startAllocCounting();
+        }
+    }
+
+    @Override
+    public long count() {
+        return Debug.getThreadAllocCount();
+    }
+
+    @Override
+    public void stop() {
+        if (mStarted) {
+            Debug.stopAllocCounting();
+            mStarted = false;
+        }
+    }
+
+    /**
+     * There is no getter for the counting state, the thread count only moves while it is on.
+     */
+    private static boolean isCounting() {
+        int before = Debug.getThreadAllocCount();
+        sProbe = new Object();
+        return Debug.getThreadAllocCount() != before;
+    }
+}
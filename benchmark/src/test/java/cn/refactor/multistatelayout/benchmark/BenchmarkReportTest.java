@@ -0,0 +1,44 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * JSON written by BenchmarkReport.
+ */
+public class BenchmarkReportTest {
+
+    @Test
+    public void writesResultsAsJson() {
+        BenchmarkReport report = new BenchmarkReport();
+        report.putContext("model", "Pixel \"2\"");
+        report.add(BenchmarkResult.of("setState", new long[]{30, 10, 20}, 6));
+        report.add(BenchmarkResult.of("lazy\\inflate", new long[]{5, 15}, -1));
+        assertEquals("{\"context\": {\"model\": \"Pixel \\\"2\\\"\"},\n"
+                + " \"benchmarks\": [\n"
+                + "  {\"name\": \"setState\", \"iterations\": 3, \"timeNs\": {\"min\": 10, \"median\": 20, \"mean\": 20, \"max\": 30}, \"allocationsPerIteration\": 2.0},\n"
+                + "  {\"name\": \"lazy\\\\inflate\", \"iterations\": 2, \"timeNs\": {\"min\": 5, \"median\": 10, \"mean\": 10, \"max\": 15}, \"allocationsPerIteration\": -1.0}]}\n",
+                report.toJson());
+    }
+
+    @Test
+    public void writesEmptyReport() {
+        assertEquals("{\"context\": {},\n \"benchmarks\": []}\n", new BenchmarkReport().toJson());
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * BenchmarkState with a fake clock and allocation counter.
+ */
+public class BenchmarkStateTest {
+
+    private static final class FakeClock implements BenchmarkState.Clock {
+        long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    private static final class FakeAllocationCounter implements BenchmarkState.AllocationCounter {
+        long count = -1;
+        int starts;
+        int stops;
+
+        @Override
+        public void start() {
+            count = 0;
+            starts++;
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public void stop() {
+            stops++;
+        }
+    }
+
+    @Test
+    public void runsWarmupAndMeasuredIterations() {
+        FakeClock clock = new FakeClock();
+        FakeAllocationCounter counter = new FakeAllocationCounter();
+        BenchmarkState state = new BenchmarkState("loop", 3, 5, clock, counter);
+        int runs = 0;
+        while (state.keepRunning()) {
+            runs++;
+            clock.now += runs * 10;
+        }
+        assertEquals(8, runs);
+        assertFalse(state.keepRunning());
+        assertEquals(1, counter.starts);
+        assertEquals(1, counter.stops);
+
+        BenchmarkResult result = state.getResult();
+        assertEquals(5, result.getIterations());
+        assertEquals(40, result.getMinNanos());
+        assertEquals(60, result.getMedianNanos());
+        assertEquals(60, result.getMeanNanos());
+        assertEquals(80, result.getMaxNanos());
+    }
+
+    @Test
+    public void excludesPausedTimeAndAllocations() {
+        FakeClock clock = new FakeClock();
+        FakeAllocationCounter counter = new FakeAllocationCounter();
+        BenchmarkState state = new BenchmarkState("paused", 0, 4, clock, counter);
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            clock.now += 1000;
+            counter.count += 50;
+            state.resumeTiming();
+            clock.now += 7;
+            counter.count += 3;
+        }
+        BenchmarkResult result = state.getResult();
+        assertEquals(7, result.getMinNanos());
+        assertEquals(7, result.getMaxNanos());
+        assertEquals(3.0, result.getAllocationsPerIteration(), 0.0);
+    }
+
+    @Test
+    public void reportsUnknownAllocations() {
+        BenchmarkState state = new BenchmarkState("unknown", 0, 2, new FakeClock(), new BenchmarkState.AllocationCounter() {
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public long count() {
+                return -1;
+            }
+
+            @Override
+            public void stop() {
+            }
+        });
+        int runs = 0;
+        while (state.keepRunning()) {
+            runs++;
+        }
+        assertEquals(2, runs);
+        BenchmarkResult result = state.getResult();
+        assertEquals(2, result.getIterations());
+        // the unknown-allocation sentinel, not a count averaged from -1
+        assertEquals(-1.0, result.getAllocationsPerIteration(), 0.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void resultRequiresFinishedLoop() {
+        BenchmarkState state = new BenchmarkState("unfinished", 0, 2, new FakeClock(), new FakeAllocationCounter());
+        state.keepRunning();
+        state.getResult();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void iterationCannotEndWhilePaused() {
+        BenchmarkState state = new BenchmarkState("paused", 0, 2, new FakeClock(), new FakeAllocationCounter());
+        state.keepRunning();
+        state.pauseTiming();
+        state.keepRunning();
+    }
+}
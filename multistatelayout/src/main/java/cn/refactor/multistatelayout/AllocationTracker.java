@@ -0,0 +1,102 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import android.os.Debug;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+/**
+ * Counts the objects allocated by the main thread during warm state transitions
+ * through android.os.Debug allocation counting, and logs or throws when some are. Meant for
+ * debug builds, enabled through MultiStateConfiguration.Builder.setAllocationPenalty.
+ */
+@SuppressWarnings("deprecation")
+final class AllocationTracker {
+
+    private static final String TAG = "MultiStateLayout";
+
+    /**
+     * Source of the allocation count, replaced in tests.
+     */
+    interface Counter {
+        /**
+         * @return objects allocated by the current thread so far
+         */
+        int count();
+    }
+
+    private static final Counter DEBUG_COUNTER = new Counter() {
+        @Override
+        public int count() {
+            return Debug.getThreadAllocCount();
+        }
+    };
+
+    private static int sPenalty = MultiStateLayout.AllocationPenalty.NONE;
+    private static Counter sCounter = DEBUG_COUNTER;
+
+    private AllocationTracker() {
+    }
+
+    static void setPenalty(@MultiStateLayout.AllocationPenalty int penalty) {
+        if (penalty == sPenalty) {
+            return;
+        }
+        if (sPenalty == MultiStateLayout.AllocationPenalty.NONE) {
+            Debug.startAllocCounting();
+        } else if (penalty == MultiStateLayout.AllocationPenalty.NONE) {
+            Debug.stopAllocCounting();
+        }
+        sPenalty = penalty;
+    }
+
+    static boolean isEnabled() {
+        return sPenalty != MultiStateLayout.AllocationPenalty.NONE;
+    }
+
+    /**
+     * @return objects allocated by the current thread so far
+     */
+    static int count() {
+        return sCounter.count();
+    }
+
+    /**
+     * @param counter counter to read instead of android.os.Debug, null to restore it
+     */
+    @VisibleForTesting
+    static void setCounter(Counter counter) {
+        sCounter = null == counter ? DEBUG_COUNTER : counter;
+    }
+
+    /**
+     * Apply the penalty for objects allocated on a warm transition.
+     *
+     * @param source      what allocated, the layout or a listener
+     * @param state       state or custom state key changed to
+     * @param customState true if state is a custom state key
+     * @param allocations objects allocated
+     */
+    static void report(Object source, int state, boolean customState, int allocations) {
+        String message = source.getClass().getName() + " allocated " + allocations + " objects while changing to "
+                + (customState ? "custom state " : "state ") + state + " after warm up";
+        if (sPenalty == MultiStateLayout.AllocationPenalty.THROW) {
+            throw new IllegalStateException(message);
+        }
+        Log.w(TAG, message);
+    }
+}
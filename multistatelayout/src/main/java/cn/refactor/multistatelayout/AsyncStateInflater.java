@@ -0,0 +1,117 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.refactor.multistatelayout;
+
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Inflates state layouts on a shared background worker and
+ * delivers the result on the main thread, in the spirit of AsyncLayoutInflater.
+ */
+final class AsyncStateInflater {
+
+    private static final String TAG = "AsyncStateInflater";
+    private static final String WORKER_NAME = "MultiStateLayout-inflater";
+
+    private static Handler sWorkerHandler;
+
+    private final Handler mUiHandler;
+    private final LayoutInflater mInflater;
+
+    interface OnInflateFinishedListener {
+
+        /**
+         * Called on the main thread once the layout has been inflated.
+         *
+         * @param view        inflated view, never attached to the parent
+         * @param resId       layout resource id
+         * @param state       state or custom state key the view was requested for
+         * @param customState true if state is a custom state key
+         */
+        void onInflateFinished(View view, int resId, int state, boolean customState);
+    }
+
+    AsyncStateInflater(Context context) {
+        mUiHandler = new Handler(Looper.getMainLooper());
+        // a clone keeps the factories of the context, e.g. AppCompat's, so views are
+        // of the same classes as when inflated on the main thread, and its own lock
+        mInflater = LayoutInflater.from(context).cloneInContext(context);
+    }
+
+    /**
+     * Inflate resId off the main thread.
+     *
+     * @param resId       layout resource id
+     * @param parent      parent used to generate layout params
+     * @param state       state or custom state key the view is inflated for
+     * @param customState true if state is a custom state key
+     * @param wrapContext inflate with a MutableContextWrapper, so that the view can be pooled
+     * @param listener    callback, invoked on the main thread
+     */
+    void inflate(final int resId, final ViewGroup parent, final int state, final boolean customState,
+                 boolean wrapContext, final OnInflateFinishedListener listener) {
+        final LayoutInflater inflater = wrapContext
+                ? mInflater.cloneInContext(new MutableContextWrapper(mInflater.getContext()))
+                : mInflater;
+        getWorkerHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                View view = null;
+                boolean trace = StateTrace.isEnabled();
+                if (trace) {
+                    StateTrace.beginSection("inflateAsync", state, customState, parent.getResources(), resId);
+                }
+                try {
+                    view = inflater.inflate(resId, parent, false);
+                } catch (RuntimeException ex) {
+                    // Some views (e.g. ones creating a Handler) can't be built off the main thread.
+                    Log.w(TAG, "Failed to inflate resource in the background! Retrying on the UI thread", ex);
+                } finally {
+                    if (trace) {
+                        StateTrace.endSection();
+                    }
+                }
+                final View result = view;
+                mUiHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        View view = null == result ? inflater.inflate(resId, parent, false) : result;
+                        listener.onInflateFinished(view, resId, state, customState);
+                    }
+                });
+            }
+        });
+    }
+
+    private static synchronized Handler getWorkerHandler() {
+        if (null == sWorkerHandler) {
+            HandlerThread thread = new HandlerThread(WORKER_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            sWorkerHandler = new Handler(thread.getLooper());
+        }
+        return sWorkerHandler;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import android.support.annotation.MainThread;
+
+/**
+ * Copy-on-write listener array. Adding or removing a listener replaces
+ * the array, dispatching only reads the current one, so iterating needs no allocation
+ * and listeners may add or remove listeners from inside a callback. A dispatch already
+ * running keeps delivering to the snapshot it started with.
+ */
+@MainThread
+final class ListenerRegistry<T> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] mListeners = EMPTY;
+
+    /**
+     * Add listener, a listener already registered is ignored.
+     *
+     * @param listener listener
+     */
+    void add(T listener) {
+        if (null == listener || indexOf(listener) >= 0) {
+            return;
+        }
+        Object[] listeners = new Object[mListeners.length + 1];
+        System.arraycopy(mListeners, 0, listeners, 0, mListeners.length);
+        listeners[mListeners.length] = listener;
+        mListeners = listeners;
+    }
+
+    /**
+     * Remove listener.
+     *
+     * @param listener listener
+     */
+    void remove(T listener) {
+        int index = indexOf(listener);
+        if (index < 0) {
+            return;
+        }
+        if (mListeners.length == 1) {
+            mListeners = EMPTY;
+            return;
+        }
+        Object[] listeners = new Object[mListeners.length - 1];
+        System.arraycopy(mListeners, 0, listeners, 0, index);
+        System.arraycopy(mListeners, index + 1, listeners, index, listeners.length - index);
+        mListeners = listeners;
+    }
+
+    /**
+     * Remove all listeners.
+     */
+    void clear() {
+        mListeners = EMPTY;
+    }
+
+    /**
+     * Return the current listeners. The array must not be modified, it is
+     * never changed in place so it is safe to iterate while listeners change.
+     *
+     * @return snapshot of listeners
+     */
+    Object[] snapshot() {
+        return mListeners;
+    }
+
+    private int indexOf(Object listener) {
+        for (int i = 0; i < mListeners.length; i++) {
+            if (mListeners[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -27,37 +27,53 @@ public class MultiStateConfiguration {
 
     public static class Builder {
 
-        private int mEmptyResId   = -1;
-        private int mErrorResId   = -1;
-        private int mLoadingResId = -1;
-        private int mNetworkErrorResId = -1;
+        private final int[] mLayoutResIds = {-1, -1, -1, -1, -1};
         private int mAnimDuration = 300;
         private boolean mAnimEnable;
+        private boolean mCrossfadeEnable;
+        private boolean mAsyncInflateEnable;
+        private boolean mStateViewPoolEnable;
+        private boolean mCoalesceEnable;
+        private boolean mSkeletonLoadingEnable;
+        private int mContentHideStrategy = MultiStateLayout.ContentHideStrategy.GONE;
+        private int mShowDelay;
+        private int mMinShowTime;
+        private int mStateViewPoolCapacity = StateViewPool.DEFAULT_CAPACITY_PER_TYPE;
+        private int mStateViewPoolMaxSize  = StateViewPool.DEFAULT_MAX_SIZE;
+        private long mStateViewReleaseTtl = -1;
+        private int[] mPrewarmCounts = new int[MultiStateLayout.State.NETWORK_ERROR + 1];
+        private boolean mMetricsEnable;
+        private StateMetricsSink mMetricsSink;
+        private boolean mTraceEnable;
+        private boolean mFrameMonitorEnable;
+        private int mAllocationPenalty = MultiStateLayout.AllocationPenalty.NONE;
+        private int mFrameMonitorFrameCount = StateFrameMonitor.DEFAULT_FRAME_COUNT;
+        private int mFrameMonitorCapacity = StateFrameMonitor.DEFAULT_CAPACITY;
 
         public Builder() {
         }
 
         @SuppressWarnings("unused")
         public Builder setCommonEmptyLayout(@LayoutRes int resId) {
-            mEmptyResId = resId;
+            mLayoutResIds[MultiStateLayout.State.EMPTY] = resId;
             return this;
         }
 
         @SuppressWarnings("unused")
         public Builder setCommonLoadingLayout(@LayoutRes int resId) {
-            mLoadingResId = resId;
+            mLayoutResIds[MultiStateLayout.State.LOADING] = resId;
             return this;
         }
 
         @SuppressWarnings("unused")
         public Builder setCommonErrorLayout(@LayoutRes int resId) {
-            mErrorResId = resId;
+            mLayoutResIds[MultiStateLayout.State.ERROR] = resId;
             return this;
         }
 
         @SuppressWarnings("unused")
         public Builder setCommonNetworkErrorLayout(@LayoutRes int resId) {
-            mNetworkErrorResId = resId;
+            mLayoutResIds[MultiStateLayout.State.NETWORK_ERROR] = resId;
             return this;
         }
 
@@ -73,24 +89,200 @@ public class MultiStateConfiguration {
             return this;
         }
 
+        @SuppressWarnings("unused")
+        public Builder setCrossfadeEnable(boolean crossfadeEnable) {
+            mCrossfadeEnable = crossfadeEnable;
+            return this;
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setAsyncInflateEnable(boolean asyncInflateEnable) {
+            mAsyncInflateEnable = asyncInflateEnable;
+            return this;
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setStateViewPoolEnable(boolean stateViewPoolEnable) {
+            mStateViewPoolEnable = stateViewPoolEnable;
+            return this;
+        }
+
+        /**
+         * @param capacity max pooled views per layout resource id
+         */
+        @SuppressWarnings("unused")
+        public Builder setStateViewPoolCapacity(int capacity) {
+            mStateViewPoolCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * @param maxSize max pooled views in total, least recently used layouts are evicted first
+         */
+        @SuppressWarnings("unused")
+        public Builder setStateViewPoolMaxSize(int maxSize) {
+            mStateViewPoolMaxSize = maxSize;
+            return this;
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setCoalesceEnable(boolean coalesceEnable) {
+            mCoalesceEnable = coalesceEnable;
+            return this;
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setSkeletonLoadingEnable(boolean skeletonLoadingEnable) {
+            mSkeletonLoadingEnable = skeletonLoadingEnable;
+            return this;
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setContentHideStrategy(@MultiStateLayout.ContentHideStrategy int strategy) {
+            mContentHideStrategy = strategy;
+            return this;
+        }
+
+        /**
+         * @param showDelay delay in milliseconds before a state other than CONTENT shows up
+         */
+        @SuppressWarnings("unused")
+        public Builder setShowDelay(int showDelay) {
+            mShowDelay = showDelay;
+            return this;
+        }
+
+        /**
+         * @param minShowTime min time in milliseconds a state other than CONTENT stays displayed
+         */
+        @SuppressWarnings("unused")
+        public Builder setMinShowTime(int minShowTime) {
+            mMinShowTime = minShowTime;
+            return this;
+        }
+
+        /**
+         * @param ttl hidden time in milliseconds after which state views may be released
+         *            on memory pressure, negative to never release them
+         */
+        @SuppressWarnings("unused")
+        public Builder setStateViewReleaseTtl(long ttl) {
+            mStateViewReleaseTtl = ttl;
+            return this;
+        }
+
+        /**
+         * Number of common state views to inflate into the state view pool when
+         * MultiStateLayout.prewarm(Context) is called. Requires the pool to be enabled.
+         *
+         * @param state state except CONTENT
+         * @param count views to prewarm
+         */
+        @SuppressWarnings("unused")
+        public Builder setPrewarmCount(@MultiStateLayout.State int state, int count) {
+            if (state > MultiStateLayout.State.CONTENT && state < mPrewarmCounts.length) {
+                mPrewarmCounts[state] = count;
+            }
+            return this;
+        }
+
+        /**
+         * @param metricsEnable record dwell time and transition metrics into StateMetrics
+         */
+        @SuppressWarnings("unused")
+        public Builder setMetricsEnable(boolean metricsEnable) {
+            mMetricsEnable = metricsEnable;
+            return this;
+        }
+
+        /**
+         * @param metricsSink sink notified of every metrics sample, requires metrics to be enabled
+         */
+        @SuppressWarnings("unused")
+        public Builder setMetricsSink(StateMetricsSink metricsSink) {
+            mMetricsSink = metricsSink;
+            return this;
+        }
+
+        /**
+         * @param traceEnable add android.os.Trace sections around inflation, listener dispatch
+         *                    and animation start, API 18 and above
+         */
+        @SuppressWarnings("unused")
+        public Builder setTraceEnable(boolean traceEnable) {
+            mTraceEnable = traceEnable;
+            return this;
+        }
+
+        /**
+         * @param frameMonitorEnable record the frame durations following each state change
+         *                           into StateFrameMonitor, API 16 and above
+         */
+        @SuppressWarnings("unused")
+        public Builder setFrameMonitorEnable(boolean frameMonitorEnable) {
+            mFrameMonitorEnable = frameMonitorEnable;
+            return this;
+        }
+
+        /**
+         * @param frameCount frames recorded after each state change
+         */
+        @SuppressWarnings("unused")
+        public Builder setFrameMonitorFrameCount(int frameCount) {
+            mFrameMonitorFrameCount = frameCount;
+            return this;
+        }
+
+        /**
+         * @param capacity state changes kept by StateFrameMonitor, older ones are overwritten
+         */
+        @SuppressWarnings("unused")
+        public Builder setFrameMonitorCapacity(int capacity) {
+            mFrameMonitorCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Count the objects allocated while changing to a state displayed before,
+         * and log or throw when there are some. For debug builds only.
+         *
+         * @param penalty AllocationPenalty
+         */
+        @SuppressWarnings("unused")
+        public Builder setAllocationPenalty(@MultiStateLayout.AllocationPenalty int penalty) {
+            mAllocationPenalty = penalty;
+            return this;
+        }
+
+        /**
+         * Get common layout by state
+         *
+         * @param state state
+         * @return layout resource id, -1 for CONTENT or if none is set
+         */
+        @SuppressWarnings("unused")
+        public int getCommonLayout(@MultiStateLayout.State int state) {
+            return state > MultiStateLayout.State.CONTENT && state < mLayoutResIds.length ? mLayoutResIds[state] : -1;
+        }
+
         @SuppressWarnings("unused")
         public int getCommonEmptyLayout() {
-            return mEmptyResId;
+            return mLayoutResIds[MultiStateLayout.State.EMPTY];
         }
 
         @SuppressWarnings("unused")
         public int getCommonLoadingLayout() {
-            return mLoadingResId;
+            return mLayoutResIds[MultiStateLayout.State.LOADING];
         }
 
         @SuppressWarnings("unused")
         public int getCommonErrorLayout() {
-            return mErrorResId;
+            return mLayoutResIds[MultiStateLayout.State.ERROR];
         }
 
         @SuppressWarnings("unused")
         public int getCommonNetworkErrorLayout() {
-            return mNetworkErrorResId;
+            return mLayoutResIds[MultiStateLayout.State.NETWORK_ERROR];
         }
 
         @SuppressWarnings("unused")
@@ -103,5 +295,100 @@ public class MultiStateConfiguration {
             return mAnimEnable;
         }
 
+        @SuppressWarnings("unused")
+        public boolean isCrossfadeEnable() {
+            return mCrossfadeEnable;
+        }
+
+        @SuppressWarnings("unused")
+        public boolean isAsyncInflateEnable() {
+            return mAsyncInflateEnable;
+        }
+
+        @SuppressWarnings("unused")
+        public boolean isCoalesceEnable() {
+            return mCoalesceEnable;
+        }
+
+        @SuppressWarnings("unused")
+        public boolean isSkeletonLoadingEnable() {
+            return mSkeletonLoadingEnable;
+        }
+
+        @SuppressWarnings("unused")
+        public int getContentHideStrategy() {
+            return mContentHideStrategy;
+        }
+
+        @SuppressWarnings("unused")
+        public int getShowDelay() {
+            return mShowDelay;
+        }
+
+        @SuppressWarnings("unused")
+        public int getMinShowTime() {
+            return mMinShowTime;
+        }
+
+        @SuppressWarnings("unused")
+        public boolean isStateViewPoolEnable() {
+            return mStateViewPoolEnable;
+        }
+
+        @SuppressWarnings("unused")
+        public int getStateViewPoolCapacity() {
+            return mStateViewPoolCapacity;
+        }
+
+        @SuppressWarnings("unused")
+        public int getStateViewPoolMaxSize() {
+            return mStateViewPoolMaxSize;
+        }
+
+        @SuppressWarnings("unused")
+        public long getStateViewReleaseTtl() {
+            return mStateViewReleaseTtl;
+        }
+
+        @SuppressWarnings("unused")
+        public int getPrewarmCount(@MultiStateLayout.State int state) {
+            return state > MultiStateLayout.State.CONTENT && state < mPrewarmCounts.length ? mPrewarmCounts[state] : 0;
+        }
+
+        @SuppressWarnings("unused")
+        public boolean isMetricsEnable() {
+            return mMetricsEnable;
+        }
+
+        @SuppressWarnings("unused")
+        public StateMetricsSink getMetricsSink() {
+            return mMetricsSink;
+        }
+
+        @SuppressWarnings("unused")
+        public boolean isTraceEnable() {
+            return mTraceEnable;
+        }
+
+        @SuppressWarnings("unused")
+        public int getAllocationPenalty() {
+            return mAllocationPenalty;
+        }
+
+        @SuppressWarnings("unused")
+        public boolean isFrameMonitorEnable() {
+            return mFrameMonitorEnable;
+        }
+
+        @SuppressWarnings("unused")
+        public int getFrameMonitorFrameCount() {
+            return mFrameMonitorFrameCount;
+        }
+
+        @SuppressWarnings("unused")
+        public int getFrameMonitorCapacity() {
+            return mFrameMonitorCapacity;
+        }
+
     }
 }
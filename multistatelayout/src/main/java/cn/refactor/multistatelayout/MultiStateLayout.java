@@ -16,25 +16,38 @@
 
 package cn.refactor.multistatelayout;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
 import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.SystemClock;
 import android.support.annotation.IntDef;
 import android.support.annotation.LayoutRes;
 import android.util.AttributeSet;
-import android.util.SparseArray;
+import android.view.Gravity;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.animation.AccelerateInterpolator;
+import android.view.animation.Interpolator;
 import android.widget.FrameLayout;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
-import java.util.List;
 
 
 /**
@@ -45,28 +58,47 @@ import java.util.List;
 public class MultiStateLayout extends FrameLayout {
 
     private static final int DEFAULT_ANIM_DURATION = 300;
+    private static final int DEFAULT_SKELETON_CORNER_RADIUS_DP = 4;
+    private static final int DEFAULT_CHILD_GRAVITY = Gravity.TOP | Gravity.START;
+    private static final Interpolator sAlphaInterpolator = new AccelerateInterpolator();
+    private static final String[] MISSING_STATE_VIEW_MESSAGES = {
+            null,
+            "Expect to have an empty view.",
+            "Expect to have an loading view.",
+            "Expect to have one error view.",
+            "Expect to have one network error view."
+    };
     private static MultiStateConfiguration.Builder mCommonConfiguration;
-    private SparseArray<View> mCustomStateViewArray;
+    private final StateRegistry mStateRegistry = new StateRegistry();
+    private StatePlaceholder mActivePlaceholder;
+    private boolean mSkeletonLoadingEnable;
+    private boolean mSkeletonActive;
+    private boolean mSkeletonDirty;
+    private SkeletonPainter mSkeletonPainter;
 
     private View mContentView;
-    private View mLoadingView;
-    private View mEmptyView;
-    private View mErrorView;
-    private View mNetworkErrorView;
-
-    private int mEmptyResId;
-    private int mErrorResId;
-    private int mLoadingResId;
-    private int mNetworkErrorResId;
 
     private int mAnimDuration;
     private boolean mAnimEnable;
+    private boolean mCrossfadeEnable;
+    private boolean mAsyncInflateEnable;
+    private boolean mStateViewPoolEnable;
+    private boolean mItemMode;
+    private boolean mCoalesceEnable;
+    private int mShowDelay;
+    private int mMinShowTime;
+    private long mStateViewReleaseTtl;
+    private boolean mComponentCallbacksRegistered;
     private LayoutInflater mInflater;
+    private AsyncStateInflater mAsyncInflater;
 
     private ObjectAnimator mAlphaAnimator;
     private TransitionAnimatorLoader mTransitionAnimatorLoader;
     private OnStateViewCreatedListener mOnStateViewCreatedListener;
-    private List<OnStateChangedListener> mOnStateChangedListeners;
+    private OnStateViewRecycledListener mOnStateViewRecycledListener;
+    private final ListenerRegistry<OnStateChangedListener> mOnStateChangedListeners = new ListenerRegistry<>();
+    private final ListenerRegistry<OnStateTransitionListener> mOnStateTransitionListeners = new ListenerRegistry<>();
+    private final ListenerRegistry<OnStateChangeEventListener> mOnStateChangeEventListeners = new ListenerRegistry<>();
 
     @IntDef({State.CONTENT, State.EMPTY, State.LOADING, State.ERROR, State.NETWORK_ERROR})
     @Retention(RetentionPolicy.SOURCE)
@@ -78,9 +110,72 @@ public class MultiStateLayout extends FrameLayout {
         int NETWORK_ERROR = 4;
     }
 
+    /**
+     * How the content view is concealed while another state is displayed.
+     * GONE relayouts the content when it comes back, INVISIBLE keeps it laid
+     * out, OVERLAY keeps it visible underneath the state view.
+     */
+    @IntDef({ContentHideStrategy.GONE, ContentHideStrategy.INVISIBLE, ContentHideStrategy.OVERLAY})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ContentHideStrategy {
+        int GONE = 0;
+        int INVISIBLE = 1;
+        int OVERLAY = 2;
+    }
+
+    /**
+     * What happens when a state transition allocates once the state has been
+     * displayed before. Objects allocated by listeners are reported separately.
+     */
+    @IntDef({AllocationPenalty.NONE, AllocationPenalty.LOG, AllocationPenalty.THROW})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface AllocationPenalty {
+        int NONE = 0;
+        int LOG = 1;
+        int THROW = 2;
+    }
+
     private @State int mCurState = State.CONTENT;
+    private @ContentHideStrategy int mContentHideStrategy;
+    private boolean mContentOverlaid;
+    private View mOverlayTouchTarget;
+    private boolean mOverlayTouchTargetClickable;
+    private final Rect mHitRect = new Rect();
+
+    private int mLastWidthMeasureSpec;
+    private int mLastHeightMeasureSpec;
+    private boolean mSuppressLayoutRequest;
+    private boolean mLayoutRequestSuppressed;
+    private final ArrayList<View> mMatchParentChildren = new ArrayList<>(1);
     private int mCurCustomStateKey;
-    private boolean mIsSystemState;
+    private boolean mIsSystemState = true;
+    private @State int mInitialState;
+
+    private boolean mHasPendingState;
+    private int mPendingState;
+    private boolean mPendingIsSystemState;
+    private boolean mPendingDisplayContentLayout;
+    private int mSkippedStateCount;
+    private int mDispatchSkippedStateCount;
+
+    private boolean mHasDelayedState;
+    private int mDelayedState;
+    private boolean mDelayedIsSystemState;
+    private boolean mDelayedDisplayContentLayout;
+    private long mDelayedStateTime;
+    private long mStateShownTime;
+    private long mStateEnterTime = SystemClock.uptimeMillis();
+    private long mStateDwellTime;
+    private boolean mDwellClockPaused;
+    private boolean mMetricsEnable;
+    private String mMetricsTag;
+    private StateMetrics mTagMetrics;
+    private StateFrameMonitor.FrameTracker mFrameTracker;
+    private boolean mStateInflated;
+    private boolean mStateViewAttached;
+    private boolean mCheckAllocations;
+    private int mUncheckedAllocations;
+    private boolean mTransitionAnimated;
 
     public MultiStateLayout(Context context) {
         this(context, null);
@@ -88,7 +183,6 @@ public class MultiStateLayout extends FrameLayout {
 
     public MultiStateLayout(Context context, AttributeSet attrs) {
         this(context, attrs, 0);
-        init(attrs);
     }
 
     public MultiStateLayout(Context context, AttributeSet attrs, int defStyleAttr) {
@@ -104,17 +198,34 @@ public class MultiStateLayout extends FrameLayout {
 
     private void init(AttributeSet attrs) {
         TypedArray ta = getContext().obtainStyledAttributes(attrs, R.styleable.MultiStateLayout);
-        mEmptyResId = ta.getResourceId(R.styleable.MultiStateLayout_layout_empty, getCommonLayoutResIdByState(State.EMPTY));
-        mErrorResId = ta.getResourceId(R.styleable.MultiStateLayout_layout_error, getCommonLayoutResIdByState(State.ERROR));
-        mLoadingResId = ta.getResourceId(R.styleable.MultiStateLayout_layout_loading, getCommonLayoutResIdByState(State.LOADING));
-        mNetworkErrorResId = ta.getResourceId(R.styleable.MultiStateLayout_layout_network_error, getCommonLayoutResIdByState(State.NETWORK_ERROR));
+        mStateRegistry.get(State.EMPTY, false).resId = ta.getResourceId(R.styleable.MultiStateLayout_layout_empty,
+                getCommonLayoutResIdByState(State.EMPTY));
+        mStateRegistry.get(State.LOADING, false).resId = ta.getResourceId(R.styleable.MultiStateLayout_layout_loading,
+                getCommonLayoutResIdByState(State.LOADING));
+        mStateRegistry.get(State.ERROR, false).resId = ta.getResourceId(R.styleable.MultiStateLayout_layout_error,
+                getCommonLayoutResIdByState(State.ERROR));
+        mStateRegistry.get(State.NETWORK_ERROR, false).resId = ta.getResourceId(R.styleable.MultiStateLayout_layout_network_error,
+                getCommonLayoutResIdByState(State.NETWORK_ERROR));
 
         mAnimEnable = ta.getBoolean(R.styleable.MultiStateLayout_animEnable, isCommonAnimEnable());
         mAnimDuration = ta.getInt(R.styleable.MultiStateLayout_animDuration, getCommonAnimDuration());
+        mCrossfadeEnable = ta.getBoolean(R.styleable.MultiStateLayout_crossfadeEnable, isCommonCrossfadeEnable());
+        mAsyncInflateEnable = ta.getBoolean(R.styleable.MultiStateLayout_asyncInflate, isCommonAsyncInflateEnable());
+        mStateViewPoolEnable = isCommonStateViewPoolEnable();
+        mItemMode = ta.getBoolean(R.styleable.MultiStateLayout_itemMode, false);
+        mSkeletonLoadingEnable = ta.getBoolean(R.styleable.MultiStateLayout_skeletonLoading, isCommonSkeletonLoadingEnable());
+        mStateViewReleaseTtl = getCommonStateViewReleaseTtl();
+        mInitialState = ta.getInt(R.styleable.MultiStateLayout_state, State.CONTENT);
+        mContentHideStrategy = ta.getInt(R.styleable.MultiStateLayout_contentHideStrategy, getCommonContentHideStrategy());
+        mCoalesceEnable = ta.getBoolean(R.styleable.MultiStateLayout_coalesceEnable, isCommonCoalesceEnable());
+        mShowDelay = ta.getInt(R.styleable.MultiStateLayout_showDelay, getCommonShowDelay());
+        mMinShowTime = ta.getInt(R.styleable.MultiStateLayout_minShowTime, getCommonMinShowTime());
+        mMetricsEnable = isCommonMetricsEnable();
+        setFrameMonitorEnable(isCommonFrameMonitorEnable());
+        setMetricsTag(ta.getString(R.styleable.MultiStateLayout_metricsTag));
         ta.recycle();
 
         mInflater = LayoutInflater.from(getContext());
-        mCustomStateViewArray = new SparseArray<>();
     }
 
     @Override
@@ -128,12 +239,336 @@ public class MultiStateLayout extends FrameLayout {
         } else {
             mContentView = null;
         }
+
+        // apply the state declared in XML before the first layout pass, so the
+        // content is never laid out just to be hidden
+        if (mInitialState != State.CONTENT) {
+            bindState(mInitialState, true);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        boolean measureMatchParentChildren = MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.EXACTLY
+                || MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.EXACTLY;
+        mMatchParentChildren.clear();
+
+        int maxWidth = 0;
+        int maxHeight = 0;
+        int childState = 0;
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE || !isActiveChild(child)) {
+                continue;
+            }
+            measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            maxWidth = Math.max(maxWidth, child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin);
+            maxHeight = Math.max(maxHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+            childState = combineMeasuredStates(childState, child.getMeasuredState());
+            if (measureMatchParentChildren && (lp.width == LayoutParams.MATCH_PARENT || lp.height == LayoutParams.MATCH_PARENT)) {
+                mMatchParentChildren.add(child);
+            }
+        }
+
+        maxWidth += getPaddingLeft() + getPaddingRight();
+        maxHeight += getPaddingTop() + getPaddingBottom();
+        maxWidth = Math.max(maxWidth, getSuggestedMinimumWidth());
+        maxHeight = Math.max(maxHeight, getSuggestedMinimumHeight());
+        Drawable foreground = getForeground();
+        if (null != foreground) {
+            maxWidth = Math.max(maxWidth, foreground.getMinimumWidth());
+            maxHeight = Math.max(maxHeight, foreground.getMinimumHeight());
+        }
+        setMeasuredDimension(resolveSizeAndState(maxWidth, widthMeasureSpec, childState),
+                resolveSizeAndState(maxHeight, heightMeasureSpec, childState << MEASURED_HEIGHT_STATE_SHIFT));
+
+        // same as FrameLayout, match_parent children take the final size
+        if (mMatchParentChildren.size() > 1) {
+            for (int i = 0; i < mMatchParentChildren.size(); i++) {
+                View child = mMatchParentChildren.get(i);
+                LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                int childWidthMeasureSpec = lp.width == LayoutParams.MATCH_PARENT
+                        ? MeasureSpec.makeMeasureSpec(Math.max(0, getMeasuredWidth() - getPaddingLeft() - getPaddingRight()
+                        - lp.leftMargin - lp.rightMargin), MeasureSpec.EXACTLY)
+                        : getChildMeasureSpec(widthMeasureSpec, getPaddingLeft() + getPaddingRight()
+                        + lp.leftMargin + lp.rightMargin, lp.width);
+                int childHeightMeasureSpec = lp.height == LayoutParams.MATCH_PARENT
+                        ? MeasureSpec.makeMeasureSpec(Math.max(0, getMeasuredHeight() - getPaddingTop() - getPaddingBottom()
+                        - lp.topMargin - lp.bottomMargin), MeasureSpec.EXACTLY)
+                        : getChildMeasureSpec(heightMeasureSpec, getPaddingTop() + getPaddingBottom()
+                        + lp.topMargin + lp.bottomMargin, lp.height);
+                child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+            }
+        }
+        mMatchParentChildren.clear();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE && isActiveChild(child)) {
+                layoutChild(child, right - left, bottom - top);
+            }
+        }
+        mSkeletonDirty = true;
+    }
+
+    @Override
+    public void requestLayout() {
+        if (mSuppressLayoutRequest) {
+            mLayoutRequestSuppressed = true;
+            return;
+        }
+        super.requestLayout();
+    }
+
+    /**
+     * Hidden state views are left untouched by measure and layout. Every other
+     * child, the content view whether or not it came from XML included, is handled
+     * like FrameLayout does, as are the displayed state view and views still fading out.
+     *
+     * @param child child
+     * @return true if child takes part in measure and layout
+     */
+    private boolean isActiveChild(View child) {
+        return child == getCurrentStateView() || isFadingOut(child) || !isStateView(child);
+    }
+
+    /**
+     * @param child child
+     * @return true if child is the view of a state record
+     */
+    private boolean isStateView(View child) {
+        for (int slot = 0; slot < mStateRegistry.slotCount(); slot++) {
+            StateRegistry.Record record = mStateRegistry.recordAt(slot);
+            if (null != record && record.view == child) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Layout child with its gravity, the same way FrameLayout does.
+     *
+     * @param child  child
+     * @param width  width of this layout
+     * @param height height of this layout
+     */
+    private void layoutChild(View child, int width, int height) {
+        int parentLeft = getPaddingLeft();
+        int parentRight = width - getPaddingRight();
+        int parentTop = getPaddingTop();
+        int parentBottom = height - getPaddingBottom();
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        int childWidth = child.getMeasuredWidth();
+        int childHeight = child.getMeasuredHeight();
+
+        int gravity = lp.gravity == -1 ? DEFAULT_CHILD_GRAVITY : lp.gravity;
+        int absoluteGravity = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+                ? Gravity.getAbsoluteGravity(gravity, getLayoutDirection())
+                : gravity;
+        int childLeft;
+        switch (absoluteGravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+            case Gravity.CENTER_HORIZONTAL:
+                childLeft = parentLeft + (parentRight - parentLeft - childWidth) / 2 + lp.leftMargin - lp.rightMargin;
+                break;
+            case Gravity.RIGHT:
+                childLeft = parentRight - childWidth - lp.rightMargin;
+                break;
+            default:
+                childLeft = parentLeft + lp.leftMargin;
+                break;
+        }
+        int childTop;
+        switch (gravity & Gravity.VERTICAL_GRAVITY_MASK) {
+            case Gravity.CENTER_VERTICAL:
+                childTop = parentTop + (parentBottom - parentTop - childHeight) / 2 + lp.topMargin - lp.bottomMargin;
+                break;
+            case Gravity.BOTTOM:
+                childTop = parentBottom - childHeight - lp.bottomMargin;
+                break;
+            default:
+                childTop = parentTop + lp.topMargin;
+                break;
+        }
+        child.layout(childLeft, childTop, childLeft + childWidth, childTop + childHeight);
+    }
+
+    /**
+     * @return true if a state change can measure and lay out only the toggled children
+     */
+    private boolean canShortCircuitLayout() {
+        return mLastWidthMeasureSpec != 0
+                && MeasureSpec.getMode(mLastWidthMeasureSpec) == MeasureSpec.EXACTLY
+                && MeasureSpec.getMode(mLastHeightMeasureSpec) == MeasureSpec.EXACTLY
+                && getMeasuredWidth() == MeasureSpec.getSize(mLastWidthMeasureSpec)
+                && getMeasuredHeight() == MeasureSpec.getSize(mLastHeightMeasureSpec)
+                && !isLayoutRequested() && null != getWindowToken();
+    }
+
+    /**
+     * Measure, with the cached measure specs, and lay out the active children
+     * that requested a layout while the state changed.
+     */
+    private void measureAndLayoutActiveChildren() {
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE || !child.isLayoutRequested() || !isActiveChild(child)) {
+                continue;
+            }
+            measureChildWithMargins(child, mLastWidthMeasureSpec, 0, mLastHeightMeasureSpec, 0);
+            layoutChild(child, getWidth(), getHeight());
+        }
+        mSkeletonDirty = true;
+        invalidate();
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mSkeletonActive) {
+            if (mSkeletonDirty) {
+                mSkeletonPainter.collectBones(mContentView);
+                mSkeletonDirty = false;
+            }
+            mSkeletonPainter.draw(canvas, getWidth());
+            postInvalidateOnFrame();
+        }
+        if (null != mActivePlaceholder) {
+            mActivePlaceholder.draw(canvas, getPaddingLeft(), getPaddingTop(),
+                    getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
+            if (mActivePlaceholder.isShimmering()) {
+                postInvalidateOnFrame();
+            }
+        }
+    }
+
+    /**
+     * Redraw on the next frame
+     */
+    private void postInvalidateOnFrame() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postInvalidateOnAnimation();
+        } else {
+            postInvalidate();
+        }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        // the state is drawn over the content: touches outside the state view
+        // are taken here so that the content underneath never gets them
+        if (isContentOverlaid() && ev.getActionMasked() == MotionEvent.ACTION_DOWN && !isOverStateView(ev)) {
+            return true;
+        }
+        return super.onInterceptTouchEvent(ev);
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return isContentOverlaid() || super.onTouchEvent(event);
+    }
+
+    private boolean isContentOverlaid() {
+        return mContentOverlaid && null != mContentView && mContentView.getVisibility() == VISIBLE;
+    }
+
+    /**
+     * @param ev event in the coordinates of this layout
+     * @return true if ev hits the visible state view
+     */
+    private boolean isOverStateView(MotionEvent ev) {
+        View stateView = getCurrentStateView();
+        if (null == stateView || stateView.getVisibility() != VISIBLE) {
+            return false;
+        }
+        stateView.getHitRect(mHitRect);
+        return mHitRect.contains((int) ev.getX() + getScrollX(), (int) ev.getY() + getScrollY());
+    }
+
+    /**
+     * While overlaid, make the state view clickable so that touches landing on it
+     * are not passed on to the content underneath. Its own clickable flag is
+     * restored once it is no longer the overlaid state view.
+     */
+    private void updateOverlayTouchTarget() {
+        View target = mContentOverlaid ? getCurrentStateView() : null;
+        if (target == mOverlayTouchTarget) {
+            return;
+        }
+        if (null != mOverlayTouchTarget) {
+            mOverlayTouchTarget.setClickable(mOverlayTouchTargetClickable);
+        }
+        mOverlayTouchTarget = target;
+        if (null != target) {
+            mOverlayTouchTargetClickable = target.isClickable();
+            target.setClickable(true);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        setComponentCallbacksRegistered(mStateViewReleaseTtl >= 0);
+        // time spent detached is not dwell time of the current state
+        mStateEnterTime = SystemClock.uptimeMillis();
+        mDwellClockPaused = false;
+        // a delayed request kept on detach waits for what is left of its delay
+        if (mHasDelayedState) {
+            postDelayed(mApplyDelayedStateRunnable, Math.max(0, mDelayedStateTime - SystemClock.uptimeMillis()));
+        }
+        // a coalesced request kept on detach is applied now, not on a frame that never came
+        if (mHasPendingState) {
+            applyPendingState();
+        }
+        // the current state view may have been returned to the pool on detach
+        StateRegistry.Record record = getCurrentRecord();
+        if (null != record && null == record.view && null == mActivePlaceholder && !mSkeletonActive) {
+            View view = obtainStateView(record, true);
+            if (null != view) {
+                view.setVisibility(VISIBLE);
+                updateOverlayTouchTarget();
+            } else {
+                // restoring the displayed state, not a transition
+                record.flags &= ~StateRegistry.Record.FLAG_PENDING_ANIMATE;
+            }
+        }
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        setComponentCallbacksRegistered(false);
+        // a detach and re-attach, e.g. while scrolling, is still one visit of the
+        // state: its dwell time is recorded once it is left, or here if never again
+        long now = SystemClock.uptimeMillis();
+        if (mMetricsEnable && isFinishing()) {
+            recordDwell(mIsSystemState ? mCurState : mCurCustomStateKey, !mIsSystemState, takeStateDwellTime(now));
+        } else if (!mDwellClockPaused) {
+            mStateDwellTime += now - mStateEnterTime;
+        }
+        mDwellClockPaused = true;
+        // keep held back requests, they are resumed once attached again
+        if (mHasDelayedState) {
+            removeCallbacks(mApplyDelayedStateRunnable);
+        }
+        if (mHasPendingState) {
+            removeCallbacks(mApplyPendingStateRunnable);
+        }
         clearTargetViewAnimation();
+        if (null != mFrameTracker) {
+            mFrameTracker.stop();
+        }
+        // items are detached and re-attached while scrolling, they release in recycle()
+        if (mStateViewPoolEnable && !mItemMode) {
+            releaseStateViewsToPool();
+        }
     }
 
     /**
@@ -144,16 +579,69 @@ public class MultiStateLayout extends FrameLayout {
     @SuppressWarnings("unused")
     public static void setConfiguration(MultiStateConfiguration.Builder builder) {
         mCommonConfiguration = builder;
+        StateTrace.setEnabled(null != builder && builder.isTraceEnable());
+        AllocationTracker.setPenalty(null == builder ? AllocationPenalty.NONE : builder.getAllocationPenalty());
+        if (null != builder) {
+            StateViewPool.getInstance().setCapacity(builder.getStateViewPoolCapacity(), builder.getStateViewPoolMaxSize());
+            if (builder.isFrameMonitorEnable()) {
+                StateFrameMonitor.getInstance().configure(builder.getFrameMonitorCapacity(), builder.getFrameMonitorFrameCount());
+            }
+        }
+    }
+
+    /**
+     * Inflate the common state layouts into the shared state view pool during
+     * main-thread idle time, as many as set by MultiStateConfiguration.Builder.setPrewarmCount.
+     * Call it on the main thread after setConfiguration, e.g. from the first Activity.
+     * Layouts are inflated with the theme and inflater factories of context, e.g. AppCompat
+     * widget substitution, so pass an Activity or a ContextThemeWrapper: with the application
+     * context themed attributes resolve against the application theme. Pooled views are
+     * shared by every screen, so the common layouts must not depend on a per-screen theme.
+     *
+     * @param context themed context, released once prewarming has finished
+     * @return prewarmer that can be cancelled, or null if nothing is to be prewarmed
+     */
+    @SuppressWarnings("unused")
+    public static StateViewPrewarmer prewarm(Context context) {
+        if (null == mCommonConfiguration || !mCommonConfiguration.isStateViewPoolEnable()) {
+            return null;
+        }
+        StateViewPrewarmer prewarmer = new StateViewPrewarmer(context, mCommonConfiguration);
+        prewarmer.start();
+        return prewarmer;
     }
 
     /**
-     * Set OnStateViewCreatedListener
+     * Set OnStateViewCreatedListener. State views already created from layout
+     * resources, e.g. for the state attribute while inflating, are reported
+     * to l right away.
      *
      * @param l OnStateViewCreatedListener
      */
     @SuppressWarnings("unused")
     public void setOnStateViewCreatedListener(OnStateViewCreatedListener l) {
         mOnStateViewCreatedListener = l;
+        if (null == l) {
+            return;
+        }
+        for (int slot = 0; slot < mStateRegistry.slotCount(); slot++) {
+            StateRegistry.Record record = mStateRegistry.recordAt(slot);
+            if (null != record && null != record.view && record.hasFlag(StateRegistry.Record.FLAG_INFLATED)) {
+                callViewCreated(record.view, record);
+            }
+        }
+    }
+
+    /**
+     * Set OnStateViewRecycledListener. Pooled state views that were handed to app
+     * code, through OnStateViewCreatedListener or the getXXXView() accessors, only
+     * go back to the pool once this listener has reset them.
+     *
+     * @param l OnStateViewRecycledListener
+     */
+    @SuppressWarnings("unused")
+    public void setOnStateViewRecycledListener(OnStateViewRecycledListener l) {
+        mOnStateViewRecycledListener = l;
     }
 
     /**
@@ -175,13 +663,7 @@ public class MultiStateLayout extends FrameLayout {
     @SuppressLint("Assert")
     public void setState(@State int state, boolean displayContentLayout) {
         assert !(state < State.CONTENT || state > State.NETWORK_ERROR);
-        clearTargetViewAnimation();
-        if (mIsSystemState) {
-            hideViewByState(mCurState, displayContentLayout);
-        } else {
-            hideCustomViewByState(mCurCustomStateKey, displayContentLayout);
-        }
-        showViewByState(state);
+        requestState(state, true, displayContentLayout);
     }
 
     @SuppressWarnings("unused")
@@ -191,26 +673,55 @@ public class MultiStateLayout extends FrameLayout {
 
     @SuppressWarnings("unused")
     public void setCustomState(int customStateKey, boolean displayContentLayout) {
-        clearTargetViewAnimation();
-        if (mIsSystemState) {
-            hideViewByState(mCurState, displayContentLayout);
-        } else {
-            hideCustomViewByState(mCurCustomStateKey, displayContentLayout);
-        }
-        showCustomViewByState(customStateKey);
+        requestState(customStateKey, false, displayContentLayout);
     }
 
     /**
      * Put customise state view by customise key
      *
-     * @param customStateKey key
+     * @param customStateKey key, not one of State
      * @param stateView      view
+     * @throws IllegalArgumentException if customStateKey is a built-in state
      */
     @SuppressWarnings("unused")
     public void putCustomStateView(int customStateKey, View stateView) {
-        mCustomStateViewArray.put(customStateKey, stateView);
+        checkCustomStateKey(customStateKey);
+        StateRegistry.Record record = mStateRegistry.obtainCustom(customStateKey);
+        removeView(record.view);
+        clearStateViewFlags(record);
+        record.view = stateView;
         addView(stateView, stateView.getLayoutParams());
         stateView.setVisibility(GONE);
+        updateOverlayTouchTarget();
+    }
+
+    /**
+     * Put customise state layout by customise key. Nothing is inflated until
+     * the state is displayed for the first time, then the view is created the
+     * same way as the built-in state views: from the shared pool, synchronously
+     * or asynchronously, and reported through OnStateViewCreatedListener with
+     * the customise key. Until then findCustomStateViewByKey returns null.
+     *
+     * @param customStateKey key, not one of State
+     * @param resId          layout
+     * @throws IllegalArgumentException if customStateKey is a built-in state
+     */
+    @SuppressWarnings("unused")
+    public void putCustomStateLayout(int customStateKey, @LayoutRes int resId) {
+        checkCustomStateKey(customStateKey);
+        setStateLayout(mStateRegistry.obtainCustom(customStateKey), resId);
+    }
+
+    /**
+     * Custom state keys share listeners, metrics and traces with the built-in
+     * states, where only the key tells them apart.
+     *
+     * @param customStateKey custom state key
+     */
+    private static void checkCustomStateKey(int customStateKey) {
+        if (customStateKey >= State.CONTENT && customStateKey <= State.NETWORK_ERROR) {
+            throw new IllegalArgumentException("customStateKey " + customStateKey + " collides with a built-in state");
+        }
     }
 
     /**
@@ -229,9 +740,126 @@ public class MultiStateLayout extends FrameLayout {
         return !mIsSystemState;
     }
 
+    /**
+     * Return the last requested state, which may still be held back by the show
+     * delay, the min show time or coalescing. Same as getState() once displayed.
+     *
+     * @return requested state value
+     */
+    @SuppressWarnings("unused")
+    public int getPendingState() {
+        if (mHasDelayedState) {
+            return mDelayedState;
+        }
+        return mHasPendingState ? mPendingState : getState();
+    }
+
+    /**
+     * @return Last requested state is customise state
+     */
+    @SuppressWarnings("unused")
+    public boolean isPendingCustomizeState() {
+        if (mHasDelayedState) {
+            return !mDelayedIsSystemState;
+        }
+        return mHasPendingState ? !mPendingIsSystemState : isCustomizeState();
+    }
+
+    /**
+     * Return how many requested states were dropped in favour of the state
+     * being dispatched. Only meaningful inside OnStateChangedListener when
+     * coalescing is enabled, 0 otherwise.
+     *
+     * @return skipped state count
+     */
+    @SuppressWarnings("unused")
+    public int getSkippedStateCount() {
+        return mDispatchSkippedStateCount;
+    }
+
     @SuppressWarnings("unused")
     public View findCustomStateViewByKey(int customStateKey) {
-        return mCustomStateViewArray.get(customStateKey);
+        return exposeStateView(mStateRegistry.get(customStateKey, true));
+    }
+
+    /**
+     * Draw placeholder for state instead of showing a view. No view is
+     * inflated or added for the state while a placeholder is set.
+     *
+     * @param state       State except CONTENT
+     * @param placeholder placeholder, null to go back to the state view
+     */
+    @SuppressWarnings("unused")
+    public void setStatePlaceholder(@State int state, StatePlaceholder placeholder) {
+        if (state > State.CONTENT && state <= State.NETWORK_ERROR) {
+            mStateRegistry.get(state, false).placeholder = placeholder;
+        }
+    }
+
+    /**
+     * Draw a shimmering skeleton for LOADING instead of showing the loading
+     * view. Bones are derived from the leaf views of the content view, which
+     * is kept laid out (INVISIBLE) while loading, unless declared through
+     * {@link #setSkeletonBones(RectF[])}.
+     *
+     * @param skeletonLoadingEnable open/close
+     */
+    @SuppressWarnings("unused")
+    public void setSkeletonLoadingEnable(boolean skeletonLoadingEnable) {
+        mSkeletonLoadingEnable = skeletonLoadingEnable;
+    }
+
+    /**
+     * Get skeleton loading status
+     *
+     * @return enable
+     */
+    @SuppressWarnings("unused")
+    public boolean isSkeletonLoadingEnable() {
+        return mSkeletonLoadingEnable;
+    }
+
+    /**
+     * Declare skeleton bones instead of deriving them from the content view.
+     *
+     * @param bones bones in pixels relative to this layout, null to derive them again
+     */
+    @SuppressWarnings("unused")
+    public void setSkeletonBones(RectF[] bones) {
+        getSkeletonPainter().setBones(bones);
+        mSkeletonDirty = true;
+        invalidate();
+    }
+
+    /**
+     * Set corner radius of the skeleton bones
+     *
+     * @param radius radius in pixels
+     */
+    @SuppressWarnings("unused")
+    public void setSkeletonCornerRadius(float radius) {
+        getSkeletonPainter().setCornerRadius(radius);
+        invalidate();
+    }
+
+    private SkeletonPainter getSkeletonPainter() {
+        if (null == mSkeletonPainter) {
+            mSkeletonPainter = new SkeletonPainter(DEFAULT_SKELETON_CORNER_RADIUS_DP * getResources().getDisplayMetrics().density);
+        }
+        return mSkeletonPainter;
+    }
+
+    /**
+     * Register a draw-only customise state by customise key
+     *
+     * @param customStateKey key, not one of State
+     * @param placeholder    placeholder
+     * @throws IllegalArgumentException if customStateKey is a built-in state
+     */
+    @SuppressWarnings("unused")
+    public void putCustomStatePlaceholder(int customStateKey, StatePlaceholder placeholder) {
+        checkCustomStateKey(customStateKey);
+        mStateRegistry.obtainCustom(customStateKey).placeholder = placeholder;
     }
 
     /**
@@ -241,11 +869,7 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setEmptyView(@LayoutRes int resId) {
-        if (null != mEmptyView) {
-            removeView(mEmptyView);
-            mEmptyView = null;
-        }
-        mEmptyResId = resId;
+        setStateLayout(mStateRegistry.get(State.EMPTY, false), resId);
     }
 
     /**
@@ -255,10 +879,7 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setEmptyView(View emptyView) {
-        removeView(mEmptyView);
-        mEmptyView = emptyView;
-        mEmptyView.setVisibility(GONE);
-        addView(mEmptyView);
+        setStateView(mStateRegistry.get(State.EMPTY, false), emptyView);
     }
 
     /**
@@ -268,14 +889,9 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public View getEmptyView() {
-        if (null == mEmptyView) {
-            if (mEmptyResId > -1) {
-                mEmptyView = mInflater.inflate(mEmptyResId, this, false);
-                addView(mEmptyView, mEmptyView.getLayoutParams());
-                mEmptyView.setVisibility(GONE);
-            }
-        }
-        return mEmptyView;
+        StateRegistry.Record record = mStateRegistry.get(State.EMPTY, false);
+        obtainStateView(record, false);
+        return exposeStateView(record);
     }
 
     /**
@@ -285,11 +901,7 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setLoadingView(@LayoutRes int resId) {
-        if (null != mLoadingView) {
-            removeView(mLoadingView);
-            mLoadingView = null;
-        }
-        mLoadingResId = resId;
+        setStateLayout(mStateRegistry.get(State.LOADING, false), resId);
     }
 
     /**
@@ -299,10 +911,7 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setLoadingView(View loadingView) {
-        removeView(mLoadingView);
-        mLoadingView = loadingView;
-        mLoadingView.setVisibility(GONE);
-        addView(mLoadingView);
+        setStateView(mStateRegistry.get(State.LOADING, false), loadingView);
     }
 
     /**
@@ -312,14 +921,9 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public View getLoadingView() {
-        if (null == mLoadingView) {
-            if (mLoadingResId > -1) {
-                mLoadingView = mInflater.inflate(mLoadingResId, this, false);
-                addView(mLoadingView, mLoadingView.getLayoutParams());
-                mLoadingView.setVisibility(GONE);
-            }
-        }
-        return mLoadingView;
+        StateRegistry.Record record = mStateRegistry.get(State.LOADING, false);
+        obtainStateView(record, false);
+        return exposeStateView(record);
     }
 
     /**
@@ -329,11 +933,7 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setErrorView(@LayoutRes int resId) {
-        if (null != mErrorView) {
-            removeView(mErrorView);
-            mErrorView = null;
-        }
-        mErrorResId = resId;
+        setStateLayout(mStateRegistry.get(State.ERROR, false), resId);
     }
 
     /**
@@ -343,10 +943,7 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setErrorView(View errorView) {
-        removeView(mErrorView);
-        mErrorView = errorView;
-        mErrorView.setVisibility(GONE);
-        addView(mErrorView);
+        setStateView(mStateRegistry.get(State.ERROR, false), errorView);
     }
 
     /**
@@ -356,14 +953,9 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public View getErrorView() {
-        if (null == mErrorView) {
-            if (mErrorResId > -1) {
-                mErrorView = mInflater.inflate(mErrorResId, this, false);
-                addView(mErrorView, mErrorView.getLayoutParams());
-                mErrorView.setVisibility(GONE);
-            }
-        }
-        return mErrorView;
+        StateRegistry.Record record = mStateRegistry.get(State.ERROR, false);
+        obtainStateView(record, false);
+        return exposeStateView(record);
     }
 
     /**
@@ -373,11 +965,7 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setNetworkErrorView(@LayoutRes int resId) {
-        if (null != mNetworkErrorView) {
-            removeView(mNetworkErrorView);
-            mNetworkErrorView = null;
-        }
-        mNetworkErrorResId = resId;
+        setStateLayout(mStateRegistry.get(State.NETWORK_ERROR, false), resId);
     }
 
     /**
@@ -387,10 +975,7 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setNetworkErrorView(View networkErrorView) {
-        removeView(mNetworkErrorView);
-        mNetworkErrorView = networkErrorView;
-        mNetworkErrorView.setVisibility(GONE);
-        addView(mNetworkErrorView);
+        setStateView(mStateRegistry.get(State.NETWORK_ERROR, false), networkErrorView);
     }
 
     /**
@@ -400,14 +985,55 @@ public class MultiStateLayout extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public View getNetworkErrorView() {
-        if (null == mNetworkErrorView) {
-            if (mNetworkErrorResId > -1) {
-                mNetworkErrorView = mInflater.inflate(mNetworkErrorResId, this, false);
-                addView(mNetworkErrorView, mNetworkErrorView.getLayoutParams());
-                mNetworkErrorView.setVisibility(GONE);
-            }
+        StateRegistry.Record record = mStateRegistry.get(State.NETWORK_ERROR, false);
+        obtainStateView(record, false);
+        return exposeStateView(record);
+    }
+
+    /**
+     * Return the view of a state to app code, which keeps it out of the pool
+     * unless OnStateViewRecycledListener resets it.
+     *
+     * @param record state record, may be null
+     * @return view or null
+     */
+    private static View exposeStateView(StateRegistry.Record record) {
+        if (null == record || null == record.view) {
+            return null;
+        }
+        record.flags |= StateRegistry.Record.FLAG_EXPOSED;
+        return record.view;
+    }
+
+    /**
+     * Replace the layout of a state, dropping the view created so far.
+     *
+     * @param record state record
+     * @param resId  layout
+     */
+    private void setStateLayout(StateRegistry.Record record, @LayoutRes int resId) {
+        if (null != record.view) {
+            removeView(record.view);
+            record.view = null;
+            clearStateViewFlags(record);
+            updateOverlayTouchTarget();
         }
-        return mNetworkErrorView;
+        record.resId = resId;
+    }
+
+    /**
+     * Replace the view of a state by a view that had created.
+     *
+     * @param record state record
+     * @param view   view
+     */
+    private void setStateView(StateRegistry.Record record, View view) {
+        removeView(record.view);
+        clearStateViewFlags(record);
+        record.view = view;
+        record.view.setVisibility(GONE);
+        addView(record.view);
+        updateOverlayTouchTarget();
     }
 
     /**
@@ -431,295 +1057,1373 @@ public class MultiStateLayout extends FrameLayout {
     }
 
     /**
-     * Set animation duration
+     * Crossfade between the outgoing and the incoming view when animation is
+     * enabled: the outgoing view fades out while the incoming one fades in, both
+     * on a hardware layer, and the outgoing view is gone once its fade ends.
      *
-     * @param duration duration
+     * @param crossfadeEnable open/close
      */
     @SuppressWarnings("unused")
-    public void setAnimDuration(int duration) {
-        mAnimDuration = duration;
+    public void setCrossfadeEnable(boolean crossfadeEnable) {
+        mCrossfadeEnable = crossfadeEnable;
     }
 
     /**
-     * Get animation duration
+     * Get crossfade status
+     *
+     * @return enable
      */
     @SuppressWarnings("unused")
-    public int getAnimDuration() {
-        return mAnimDuration;
+    public boolean isCrossfadeEnable() {
+        return mCrossfadeEnable;
     }
 
     /**
-     * Set transition animator
+     * Set how the content view is concealed while another state is displayed
+     *
+     * @param strategy ContentHideStrategy
      */
     @SuppressWarnings("unused")
-    public void setTransitionAnimator(TransitionAnimatorLoader animatorLoader) {
+    public void setContentHideStrategy(@ContentHideStrategy int strategy) {
+        mContentHideStrategy = strategy;
+    }
+
+    /**
+     * Get content hide strategy
+     *
+     * @return ContentHideStrategy
+     */
+    @SuppressWarnings("unused")
+    public @ContentHideStrategy int getContentHideStrategy() {
+        return mContentHideStrategy;
+    }
+
+    /**
+     * Set animation duration
+     *
+     * @param duration duration
+     */
+    @SuppressWarnings("unused")
+    public void setAnimDuration(int duration) {
+        mAnimDuration = duration;
+    }
+
+    /**
+     * Get animation duration
+     */
+    @SuppressWarnings("unused")
+    public int getAnimDuration() {
+        return mAnimDuration;
+    }
+
+    /**
+     * Inflate state layouts on a background worker. Until the view is ready
+     * nothing is shown for the requested state; the latest requested state
+     * is applied as soon as the view arrives.
+     *
+     * @param asyncInflateEnable open/close
+     */
+    @SuppressWarnings("unused")
+    public void setAsyncInflateEnable(boolean asyncInflateEnable) {
+        mAsyncInflateEnable = asyncInflateEnable;
+    }
+
+    /**
+     * Get async inflation status
+     *
+     * @return enable
+     */
+    @SuppressWarnings("unused")
+    public boolean isAsyncInflateEnable() {
+        return mAsyncInflateEnable;
+    }
+
+    /**
+     * Take state views from, and return them to, a process-wide pool keyed by
+     * layout resource id instead of inflating them for every layout. Pooled
+     * views are reported through OnStateViewCreatedListener each time they are
+     * attached to a new layout, which is where listeners should be bound.
+     * Views inflated this way carry a MutableContextWrapper as their context.
+     * A view handed to app code, through OnStateViewCreatedListener or the
+     * getXXXView() accessors, is only pooled again if an OnStateViewRecycledListener
+     * is set to clear what was bound to it, it is dropped otherwise.
+     *
+     * @param stateViewPoolEnable open/close
+     */
+    @SuppressWarnings("unused")
+    public void setStateViewPoolEnable(boolean stateViewPoolEnable) {
+        mStateViewPoolEnable = stateViewPoolEnable;
+    }
+
+    /**
+     * Get state view pool status
+     *
+     * @return enable
+     */
+    @SuppressWarnings("unused")
+    public boolean isStateViewPoolEnable() {
+        return mStateViewPoolEnable;
+    }
+
+    /**
+     * Coalesce state changes requested within one frame, only the last one is
+     * applied on the next frame. States are applied immediately while the
+     * layout is not attached to a window, a request still pending when the
+     * layout is detached is applied once it is attached again.
+     *
+     * @param coalesceEnable open/close
+     */
+    @SuppressWarnings("unused")
+    public void setCoalesceEnable(boolean coalesceEnable) {
+        mCoalesceEnable = coalesceEnable;
+        if (!coalesceEnable && mHasPendingState) {
+            removeCallbacks(mApplyPendingStateRunnable);
+            applyPendingState();
+        }
+    }
+
+    /**
+     * Get coalescing status
+     *
+     * @return enable
+     */
+    @SuppressWarnings("unused")
+    public boolean isCoalesceEnable() {
+        return mCoalesceEnable;
+    }
+
+    /**
+     * Delay showing any state other than CONTENT while CONTENT is displayed.
+     * If another state is requested within the delay, the delayed one is
+     * never shown, which avoids flashing e.g. LOADING on fast cache hits.
+     *
+     * @param showDelay delay in milliseconds, 0 to disable
+     */
+    @SuppressWarnings("unused")
+    public void setShowDelay(int showDelay) {
+        mShowDelay = showDelay;
+    }
+
+    /**
+     * Get show delay
+     *
+     * @return delay in milliseconds
+     */
+    @SuppressWarnings("unused")
+    public int getShowDelay() {
+        return mShowDelay;
+    }
+
+    /**
+     * Keep a state other than CONTENT displayed for at least minShowTime once
+     * shown. Requests arriving earlier are held back until it elapses.
+     *
+     * @param minShowTime time in milliseconds, 0 to disable
+     */
+    @SuppressWarnings("unused")
+    public void setMinShowTime(int minShowTime) {
+        mMinShowTime = minShowTime;
+    }
+
+    /**
+     * Get min show time
+     *
+     * @return time in milliseconds
+     */
+    @SuppressWarnings("unused")
+    public int getMinShowTime() {
+        return mMinShowTime;
+    }
+
+    /**
+     * Item mode, for layouts used inside RecyclerView items. State views are
+     * always pooled and, when missing from the pool, inflated asynchronously
+     * so that binding never inflates during scroll. They are only returned to
+     * the pool by {@link #recycle()}, not on detach.
+     *
+     * @param itemMode open/close
+     */
+    @SuppressWarnings("unused")
+    public void setItemMode(boolean itemMode) {
+        mItemMode = itemMode;
+    }
+
+    /**
+     * Get item mode status
+     *
+     * @return item mode
+     */
+    @SuppressWarnings("unused")
+    public boolean isItemMode() {
+        return mItemMode;
+    }
+
+    /**
+     * Bind state, e.g. from RecyclerView.Adapter.onBindViewHolder. The state is
+     * applied immediately without animation, show delay or coalescing, and
+     * nothing is done if it is already displayed.
+     *
+     * @param state State
+     */
+    @SuppressWarnings("unused")
+    public void bindState(@State int state) {
+        bindState(state, true);
+    }
+
+    /**
+     * Bind custom state, see {@link #bindState(int)}.
+     *
+     * @param customStateKey custom state key
+     */
+    @SuppressWarnings("unused")
+    public void bindCustomState(int customStateKey) {
+        bindState(customStateKey, false);
+    }
+
+    /**
+     * Return state views to the shared pool and go back to CONTENT without
+     * animation, e.g. from RecyclerView.Adapter.onViewRecycled.
+     */
+    @SuppressWarnings("unused")
+    public void recycle() {
+        bindState(State.CONTENT, true);
+        clearTargetViewAnimation();
+        releaseStateViewsToPool();
+    }
+
+    /**
+     * Release hidden state views inflated from layout resources when the system
+     * trims memory, if they have been hidden for at least ttl. They are rebuilt
+     * from their resource, and reported through OnStateViewCreatedListener,
+     * when needed again. Views set through setXXXView(View) are never released.
+     * Neither are views returned by getXXXView() or findCustomStateViewByKey,
+     * since changes made to them would be lost, unless an OnStateViewCreatedListener
+     * is set to apply them again to the rebuilt view.
+     *
+     * @param ttl time in milliseconds, negative to never release (default)
+     */
+    @SuppressWarnings("unused")
+    public void setStateViewReleaseTtl(long ttl) {
+        mStateViewReleaseTtl = ttl;
+        if (null != getWindowToken()) {
+            setComponentCallbacksRegistered(ttl >= 0);
+        }
+    }
+
+    /**
+     * Get state view release TTL
+     *
+     * @return ttl in milliseconds
+     */
+    @SuppressWarnings("unused")
+    public long getStateViewReleaseTtl() {
+        return mStateViewReleaseTtl;
+    }
+
+    /**
+     * Set transition animator
+     */
+    @SuppressWarnings("unused")
+    public void setTransitionAnimator(TransitionAnimatorLoader animatorLoader) {
         mTransitionAnimatorLoader = animatorLoader;
     }
 
     /**
-     * Add OnStateChangedListener
+     * Enable or disable recording dwell time and transition metrics into StateMetrics.
+     *
+     * @param metricsEnable metricsEnable
+     */
+    @SuppressWarnings("unused")
+    public void setMetricsEnable(boolean metricsEnable) {
+        mMetricsEnable = metricsEnable;
+    }
+
+    /**
+     * Record the frame durations following each state change into StateFrameMonitor.
+     * Requires API 16, ignored below.
+     *
+     * @param frameMonitorEnable frameMonitorEnable
+     */
+    @SuppressWarnings("unused")
+    public void setFrameMonitorEnable(boolean frameMonitorEnable) {
+        if (!frameMonitorEnable || !StateFrameMonitor.FrameTracker.isSupported()) {
+            if (null != mFrameTracker) {
+                mFrameTracker.stop();
+                mFrameTracker = null;
+            }
+        } else if (null == mFrameTracker) {
+            mFrameTracker = new StateFrameMonitor.FrameTracker(getContext());
+        }
+    }
+
+    /**
+     * Set the tag metrics of this layout are recorded under, besides the global metrics.
+     *
+     * @param metricsTag tag, null to record globally only
+     */
+    @SuppressWarnings("unused")
+    public void setMetricsTag(String metricsTag) {
+        mMetricsTag = metricsTag;
+        mTagMetrics = StateMetrics.forTag(metricsTag);
+    }
+
+    @SuppressWarnings("unused")
+    public String getMetricsTag() {
+        return mMetricsTag;
+    }
+
+    /**
+     * Add OnStateChangedListener
+     *
+     * @param l OnStateChangedListener
+     */
+    @SuppressWarnings("unused")
+    public void addOnStateChangedListener(OnStateChangedListener l) {
+        mOnStateChangedListeners.add(l);
+    }
+
+    /**
+     * Remove OnStateChangedListener
+     *
+     * @param l OnStateChangedListener
+     */
+    @SuppressWarnings("unused")
+    public void removeOnStateChangedListener(OnStateChangedListener l) {
+        mOnStateChangedListeners.remove(l);
+    }
+
+    /**
+     * Remove all listener
+     */
+    @SuppressWarnings("unused")
+    public void clearOnStateChangedListeners() {
+        mOnStateChangedListeners.clear();
+    }
+
+    /**
+     * Add OnStateTransitionListener, notified with the previous state as well.
+     *
+     * @param l OnStateTransitionListener
+     */
+    @SuppressWarnings("unused")
+    public void addOnStateTransitionListener(OnStateTransitionListener l) {
+        mOnStateTransitionListeners.add(l);
+    }
+
+    /**
+     * Remove OnStateTransitionListener
+     *
+     * @param l OnStateTransitionListener
+     */
+    @SuppressWarnings("unused")
+    public void removeOnStateTransitionListener(OnStateTransitionListener l) {
+        mOnStateTransitionListeners.remove(l);
+    }
+
+    /**
+     * Remove all OnStateTransitionListener
+     */
+    @SuppressWarnings("unused")
+    public void clearOnStateTransitionListeners() {
+        mOnStateTransitionListeners.clear();
+    }
+
+    /**
+     * Add OnStateChangeEventListener, notified with the previous state, timestamp
+     * and how long the previous state was displayed.
+     *
+     * @param l OnStateChangeEventListener
+     */
+    @SuppressWarnings("unused")
+    public void addOnStateChangeEventListener(OnStateChangeEventListener l) {
+        mOnStateChangeEventListeners.add(l);
+    }
+
+    /**
+     * Remove OnStateChangeEventListener
+     *
+     * @param l OnStateChangeEventListener
+     */
+    @SuppressWarnings("unused")
+    public void removeOnStateChangeEventListener(OnStateChangeEventListener l) {
+        mOnStateChangeEventListeners.remove(l);
+    }
+
+    /**
+     * Remove all OnStateChangeEventListener
+     */
+    @SuppressWarnings("unused")
+    public void clearOnStateChangeEventListeners() {
+        mOnStateChangeEventListeners.clear();
+    }
+
+    /**
+     * Request state, holding it back when a show delay or min show time applies.
+     *
+     * @param state                state or custom state key
+     * @param isSystemState        state is one of State
+     * @param displayContentLayout display or conceal content layout
+     */
+    private void requestState(int state, boolean isSystemState, boolean displayContentLayout) {
+        boolean hadDelayedState = mHasDelayedState;
+        if (hadDelayedState) {
+            removeCallbacks(mApplyDelayedStateRunnable);
+            mHasDelayedState = false;
+        }
+
+        if ((mShowDelay > 0 || mMinShowTime > 0) && null != getWindowToken()) {
+            if (hadDelayedState && !mHasPendingState && mIsSystemState == isSystemState
+                    && (isSystemState ? mCurState : mCurCustomStateKey) == state) {
+                // back to the displayed state before the delayed one showed up, nothing to do
+                return;
+            }
+            boolean isShowingContent = !mHasPendingState && mIsSystemState && mCurState == State.CONTENT;
+            long delay = 0;
+            if (!isShowingContent) {
+                delay = mStateShownTime + mMinShowTime - SystemClock.uptimeMillis();
+            } else if (!isSystemState || state != State.CONTENT) {
+                delay = mShowDelay;
+            }
+            if (delay > 0) {
+                mHasDelayedState = true;
+                mDelayedState = state;
+                mDelayedIsSystemState = isSystemState;
+                mDelayedDisplayContentLayout = displayContentLayout;
+                mDelayedStateTime = SystemClock.uptimeMillis() + delay;
+                postDelayed(mApplyDelayedStateRunnable, delay);
+                return;
+            }
+        }
+        dispatchRequestState(state, isSystemState, displayContentLayout);
+    }
+
+    private final Runnable mApplyDelayedStateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyDelayedState();
+        }
+    };
+
+    private void applyDelayedState() {
+        if (mHasDelayedState) {
+            mHasDelayedState = false;
+            dispatchRequestState(mDelayedState, mDelayedIsSystemState, mDelayedDisplayContentLayout);
+        }
+    }
+
+    private void bindState(int state, boolean isSystemState) {
+        if (mHasDelayedState) {
+            removeCallbacks(mApplyDelayedStateRunnable);
+            mHasDelayedState = false;
+        }
+        if (mHasPendingState) {
+            removeCallbacks(mApplyPendingStateRunnable);
+            mHasPendingState = false;
+            mSkippedStateCount = 0;
+        }
+        if (mIsSystemState == isSystemState && (isSystemState ? mCurState : mCurCustomStateKey) == state) {
+            return;
+        }
+
+        boolean animEnable = mAnimEnable;
+        mAnimEnable = false;
+        applyState(state, isSystemState, false);
+        mAnimEnable = animEnable;
+    }
+
+    /**
+     * Apply state now, or record it for the next frame when coalescing.
+     *
+     * @param state                state or custom state key
+     * @param isSystemState        state is one of State
+     * @param displayContentLayout display or conceal content layout
+     */
+    private void dispatchRequestState(int state, boolean isSystemState, boolean displayContentLayout) {
+        if (!mCoalesceEnable || null == getWindowToken()) {
+            // a request kept from before detach is superseded by this one
+            if (mHasPendingState) {
+                removeCallbacks(mApplyPendingStateRunnable);
+                mHasPendingState = false;
+                mSkippedStateCount = 0;
+            }
+            applyState(state, isSystemState, displayContentLayout);
+            return;
+        }
+
+        if (mHasPendingState) {
+            mSkippedStateCount++;
+        } else {
+            mHasPendingState = true;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                postOnAnimation(mApplyPendingStateRunnable);
+            } else {
+                post(mApplyPendingStateRunnable);
+            }
+        }
+        mPendingState = state;
+        mPendingIsSystemState = isSystemState;
+        mPendingDisplayContentLayout = displayContentLayout;
+    }
+
+    private final Runnable mApplyPendingStateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyPendingState();
+        }
+    };
+
+    private void applyPendingState() {
+        if (!mHasPendingState) {
+            return;
+        }
+        mHasPendingState = false;
+        mDispatchSkippedStateCount = mSkippedStateCount;
+        mSkippedStateCount = 0;
+        applyState(mPendingState, mPendingIsSystemState, mPendingDisplayContentLayout);
+        mDispatchSkippedStateCount = 0;
+    }
+
+    /**
+     * Hide the current state view and show the target one.
+     *
+     * @param state                state or custom state key
+     * @param isSystemState        state is one of State
+     * @param displayContentLayout display or conceal content layout
+     */
+    private void applyState(int state, boolean isSystemState, boolean displayContentLayout) {
+        long applyStartTime = mMetricsEnable ? System.nanoTime() : 0;
+        boolean trackAllocations = AllocationTracker.isEnabled();
+        int allocationStart = trackAllocations ? AllocationTracker.count() : 0;
+        mCheckAllocations = trackAllocations && isWarmState(state, isSystemState);
+        mUncheckedAllocations = 0;
+        mStateInflated = false;
+        mStateViewAttached = false;
+        mTransitionAnimated = false;
+        // with a fixed size, the children toggled below are measured and laid
+        // out on their own instead of requesting a layout of the whole tree
+        mSuppressLayoutRequest = canShortCircuitLayout();
+        int previousState = mIsSystemState ? mCurState : mCurCustomStateKey;
+        boolean previousSystemState = mIsSystemState;
+        clearTargetViewAnimation();
+        boolean isContent = isSystemState && state == State.CONTENT;
+        if (!isContent) {
+            hideContentView(displayContentLayout);
+        }
+        mContentOverlaid = !isContent && null != mContentView && mContentView.getVisibility() == VISIBLE;
+        hideState(getCurrentRecord());
+        mStateShownTime = SystemClock.uptimeMillis();
+        long previousStateDuration = takeStateDwellTime(mStateShownTime);
+        showState(state, isSystemState);
+        updateOverlayTouchTarget();
+
+        mSuppressLayoutRequest = false;
+        if (mLayoutRequestSuppressed) {
+            mLayoutRequestSuppressed = false;
+            measureAndLayoutActiveChildren();
+        }
+        if (null != mFrameTracker && null != getWindowToken()) {
+            mFrameTracker.start(previousState, !previousSystemState, state, !isSystemState, mStateInflated, mTransitionAnimated);
+        }
+        if (mMetricsEnable) {
+            recordMetrics(previousState, !previousSystemState, state, !isSystemState,
+                    previousStateDuration, System.nanoTime() - applyStartTime);
+        }
+        boolean trace = StateTrace.isEnabled();
+        if (trace) {
+            StateTrace.beginSection("dispatch", state, !isSystemState, null, -1);
+        }
+        try {
+            dispatchStateChangedAction(previousState, state);
+            dispatchStateChangeEvent(previousState, !previousSystemState, state, !isSystemState,
+                    mStateShownTime, previousStateDuration);
+        } finally {
+            if (trace) {
+                StateTrace.endSection();
+            }
+        }
+        // the whole change counts, dispatch included, except what app code and the
+        // framework animator start allocated. A view attached on the way, e.g. taken
+        // from the pool, is not steady state yet
+        if (mCheckAllocations && !mStateViewAttached) {
+            int allocations = AllocationTracker.count() - allocationStart - mUncheckedAllocations;
+            if (allocations > 0) {
+                AllocationTracker.report(this, state, !isSystemState, allocations);
+            }
+        }
+        if (trackAllocations) {
+            mCheckAllocations = false;
+            markWarmState(state, isSystemState);
+        }
+    }
+
+    /**
+     * @return true if the state has been displayed before
+     */
+    private boolean isWarmState(int state, boolean isSystemState) {
+        StateRegistry.Record record = mStateRegistry.get(state, !isSystemState);
+        return null != record && record.hasFlag(StateRegistry.Record.FLAG_WARM);
+    }
+
+    private void markWarmState(int state, boolean isSystemState) {
+        StateRegistry.Record record = isSystemState ? mStateRegistry.get(state, false) : mStateRegistry.obtainCustom(state);
+        if (null != record) {
+            record.flags |= StateRegistry.Record.FLAG_WARM;
+        }
+    }
+
+    /**
+     * Cancel animation
+     */
+    private void clearTargetViewAnimation() {
+        if (null != mAlphaAnimator && mAlphaAnimator.isRunning()) {
+            mAlphaAnimator.cancel();
+        }
+        // let outgoing views of a previous crossfade reach their end state
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            ObjectAnimator fadeOutAnimator = (ObjectAnimator) getChildAt(i).getTag(R.id.multi_state_fade_out_animator);
+            if (null != fadeOutAnimator && fadeOutAnimator.isRunning()) {
+                fadeOutAnimator.end();
+            }
+        }
+    }
+
+    /**
+     * Hide the view of a state, system or custom alike
+     *
+     * @param record state record, null for CONTENT or an unknown custom state
+     */
+    private void hideState(StateRegistry.Record record) {
+        hidePlaceholder();
+
+        if (null != record && null != record.view) {
+            hideStateView(record.view);
+            record.hiddenTime = SystemClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * Start drawing placeholder on top of the children
+     *
+     * @param placeholder placeholder
+     */
+    private void showPlaceholder(StatePlaceholder placeholder) {
+        mActivePlaceholder = placeholder;
+        invalidate();
+    }
+
+    private void hidePlaceholder() {
+        if (null != mActivePlaceholder || mSkeletonActive) {
+            mActivePlaceholder = null;
+            mSkeletonActive = false;
+            invalidate();
+        }
+    }
+
+    /**
+     * Start drawing the skeleton, keeping the content laid out but invisible
+     */
+    private void showSkeleton() {
+        if (null != mContentView && mContentView.getVisibility() != VISIBLE) {
+            mContentView.setVisibility(INVISIBLE);
+        } else if (null != mContentView && isFadingOut(mContentView)) {
+            ((ObjectAnimator) mContentView.getTag(R.id.multi_state_fade_out_animator)).cancel();
+            mContentView.setVisibility(INVISIBLE);
+        }
+        getSkeletonPainter();
+        mSkeletonActive = true;
+        mSkeletonDirty = true;
+        invalidate();
+    }
+
+    /**
+     * Display or conceal content view while a state other than CONTENT is displayed.
+     * Content displayed underneath the state is left untouched when already visible.
+     *
+     * @param displayContentLayout display content layout
+     */
+    private void hideContentView(boolean displayContentLayout) {
+        if (null == mContentView) {
+            return;
+        }
+        if (displayContentLayout || mContentHideStrategy == ContentHideStrategy.OVERLAY) {
+            if (isFadingOut(mContentView)) {
+                ((ObjectAnimator) mContentView.getTag(R.id.multi_state_fade_out_animator)).cancel();
+            }
+            mContentView.setVisibility(VISIBLE);
+        } else {
+            hideStateView(mContentView, mContentHideStrategy == ContentHideStrategy.INVISIBLE ? INVISIBLE : GONE);
+        }
+    }
+
+    /**
+     * Hide view, fading it out first when crossfading
+     *
+     * @param view view
+     */
+    private void hideStateView(View view) {
+        hideStateView(view, GONE);
+    }
+
+    /**
+     * Hide view, fading it out first when crossfading
+     *
+     * @param view             view
+     * @param hiddenVisibility GONE or INVISIBLE
+     */
+    private void hideStateView(View view, int hiddenVisibility) {
+        if (mAnimEnable && mCrossfadeEnable && view.getVisibility() == VISIBLE && null != getWindowToken()) {
+            startAnimator(obtainFadeOutAnimator(view, hiddenVisibility));
+        } else if (view.getVisibility() != hiddenVisibility) {
+            view.setVisibility(hiddenVisibility);
+        }
+    }
+
+    private static boolean isFadingOut(View view) {
+        ObjectAnimator fadeOutAnimator = (ObjectAnimator) view.getTag(R.id.multi_state_fade_out_animator);
+        return null != fadeOutAnimator && fadeOutAnimator.isRunning();
+    }
+
+    /**
+     * Show view, fading it in when animation is enabled
+     *
+     * @param view view
+     */
+    private void showStateView(View view) {
+        showStateView(view, mAnimEnable);
+    }
+
+    /**
+     * Show view, fading it in if animate
      *
-     * @param l OnStateChangedListener
+     * @param view    view
+     * @param animate fade in
      */
-    @SuppressWarnings("unused")
-    public void addOnStateChangedListener(OnStateChangedListener l) {
-        if (mOnStateChangedListeners == null) {
-            mOnStateChangedListeners = new ArrayList<>();
+    private void showStateView(View view, boolean animate) {
+        if (isFadingOut(view)) {
+            ((ObjectAnimator) view.getTag(R.id.multi_state_fade_out_animator)).cancel();
+        }
+        view.setVisibility(VISIBLE);
+        if (animate) {
+            execAlphaAnimation(view);
         }
-        mOnStateChangedListeners.add(l);
     }
 
     /**
-     * Remove OnStateChangedListener
+     * Show the view of a state, system or custom alike: its placeholder if
+     * any, the skeleton for LOADING if enabled, its view otherwise.
      *
-     * @param l OnStateChangedListener
+     * @param state         state or custom state key
+     * @param isSystemState state is one of State
      */
-    @SuppressWarnings("unused")
-    public void removeOnStateChangedListener(OnStateChangedListener l) {
-        if (mOnStateChangedListeners != null) {
-            mOnStateChangedListeners.remove(l);
+    private void showState(int state, boolean isSystemState) {
+        StateRegistry.Record record = mStateRegistry.get(state, !isSystemState);
+        if (isSystemState && state == State.CONTENT) {
+            showContentView();
+        } else if (null != record && null != record.placeholder) {
+            showPlaceholder(record.placeholder);
+        } else if (isSystemState && state == State.LOADING && mSkeletonLoadingEnable) {
+            showSkeleton();
+        } else if (null != record) {
+            View view = obtainStateView(record, true);
+            if (null != view) {
+                showStateView(view);
+            } else if (isSystemState && !record.hasFlag(StateRegistry.Record.FLAG_PENDING)) {
+                throw new NullPointerException(MISSING_STATE_VIEW_MESSAGES[state]);
+            }
+        }
+
+        if (isSystemState) {
+            mCurState = state;
+        } else {
+            mCurCustomStateKey = state;
         }
+        mIsSystemState = isSystemState;
     }
 
     /**
-     * Remove all listener
+     * Call onChanged(state) and onTransition(previousState, state) when state has changed.
+     * Iterates the current snapshots by index, so nothing is allocated and listeners
+     * may add or remove listeners from the callback.
+     * @param previousState previous state
+     * @param state         state
      */
-    @SuppressWarnings("unused")
-    public void clearOnStateChangedListeners() {
-        if (mOnStateChangedListeners != null) {
-            mOnStateChangedListeners.clear();
+    private void dispatchStateChangedAction(int previousState, int state) {
+        Object[] changedListeners = mOnStateChangedListeners.snapshot();
+        for (int i = 0; i < changedListeners.length; i++) {
+            int allocationStart = mCheckAllocations ? AllocationTracker.count() : 0;
+            ((OnStateChangedListener) changedListeners[i]).onChanged(state);
+            checkListenerAllocations(changedListeners[i], state, allocationStart);
+        }
+        Object[] transitionListeners = mOnStateTransitionListeners.snapshot();
+        for (int i = 0; i < transitionListeners.length; i++) {
+            int allocationStart = mCheckAllocations ? AllocationTracker.count() : 0;
+            ((OnStateTransitionListener) transitionListeners[i]).onTransition(previousState, state);
+            checkListenerAllocations(transitionListeners[i], state, allocationStart);
         }
     }
 
     /**
-     * Cancel animation
+     * Record dwell time of the previous state and cost of the change globally and for the metrics tag.
      */
-    private void clearTargetViewAnimation() {
-        if (null != mAlphaAnimator && mAlphaAnimator.isRunning()) {
-            mAlphaAnimator.cancel();
+    private void recordMetrics(int previousState, boolean previousCustomState, int state,
+                               boolean customState, long previousStateDuration, long costNanos) {
+        recordDwell(previousState, previousCustomState, previousStateDuration);
+        StateMetrics global = StateMetrics.global();
+        global.recordEnter(state, customState);
+        global.recordTransition(costNanos);
+        if (null != mTagMetrics) {
+            mTagMetrics.recordEnter(state, customState);
+            mTagMetrics.recordTransition(costNanos);
+        }
+        StateMetricsSink sink = getCommonMetricsSink();
+        if (null != sink) {
+            int allocationStart = mCheckAllocations ? AllocationTracker.count() : 0;
+            sink.onStateTransition(mMetricsTag, previousState, previousCustomState, state, customState, costNanos);
+            checkListenerAllocations(sink, state, allocationStart);
         }
     }
 
     /**
-     * Hide target view
+     * Return the time the current state has been shown while attached, across
+     * detaches, and restart counting from now.
      *
-     * @param state                state
-     * @param displayContentLayout display content layout
+     * @param now uptime in milliseconds
+     * @return dwell time in milliseconds
+     */
+    private long takeStateDwellTime(long now) {
+        long dwellTime = mStateDwellTime + (mDwellClockPaused ? 0 : now - mStateEnterTime);
+        mStateDwellTime = 0;
+        mStateEnterTime = now;
+        return dwellTime;
+    }
+
+    /**
+     * @return true if the activity this layout belongs to is finishing, so it will not be attached again
      */
-    private void hideViewByState(@State int state, boolean displayContentLayout) {
-        if (null != mContentView) {
-            mContentView.setVisibility(displayContentLayout ? VISIBLE : GONE);
+    private boolean isFinishing() {
+        Context context = getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return ((Activity) context).isFinishing();
+            }
+            context = ((ContextWrapper) context).getBaseContext();
         }
+        return false;
+    }
 
-        switch (state) {
-            case State.CONTENT:
-                break;
-            case State.EMPTY:
-                if (null != mEmptyView) {
-                    mEmptyView.setVisibility(GONE);
-                }
-                break;
-            case State.LOADING:
-                if (null != mLoadingView) {
-                    mLoadingView.setVisibility(GONE);
-                }
-                break;
-            case State.ERROR:
-                if (null != mErrorView) {
-                    mErrorView.setVisibility(GONE);
-                }
-                break;
-            case State.NETWORK_ERROR:
-                if (null != mNetworkErrorView) {
-                    mNetworkErrorView.setVisibility(GONE);
-                }
-                break;
-            default:
-                break;
+    /**
+     * Record dwell time of a state globally, for the metrics tag and into the common sink.
+     */
+    private void recordDwell(int state, boolean customState, long duration) {
+        StateMetrics.global().recordDwell(state, customState, duration);
+        if (null != mTagMetrics) {
+            mTagMetrics.recordDwell(state, customState, duration);
+        }
+        StateMetricsSink sink = getCommonMetricsSink();
+        if (null != sink) {
+            int allocationStart = mCheckAllocations ? AllocationTracker.count() : 0;
+            sink.onStateDwell(mMetricsTag, state, customState, duration);
+            checkListenerAllocations(sink, mIsSystemState ? mCurState : mCurCustomStateKey, allocationStart);
         }
     }
 
     /**
-     * Hide target view
-     *
-     * @param customStateKey       custom state key
-     * @param displayContentLayout display content layout
+     * Call onStateChanged(event) with a pooled event when state has changed.
      */
-    private void hideCustomViewByState(int customStateKey, boolean displayContentLayout) {
-        if (null != mContentView) {
-            mContentView.setVisibility(displayContentLayout ? VISIBLE : GONE);
+    private void dispatchStateChangeEvent(int previousState, boolean previousCustomState, int state,
+                                          boolean customState, long timestamp, long previousStateDuration) {
+        Object[] listeners = mOnStateChangeEventListeners.snapshot();
+        if (listeners.length == 0) {
+            return;
+        }
+        StateChangeEvent event = StateChangeEvent.obtain(previousState, previousCustomState,
+                state, customState, timestamp, previousStateDuration);
+        try {
+            for (int i = 0; i < listeners.length; i++) {
+                int allocationStart = mCheckAllocations ? AllocationTracker.count() : 0;
+                ((OnStateChangeEventListener) listeners[i]).onStateChanged(event);
+                checkListenerAllocations(listeners[i], state, allocationStart);
+            }
+        } finally {
+            // a throwing listener must not leak the event out of the pool
+            event.recycle();
         }
+    }
 
-        View customStateView = findCustomStateViewByKey(customStateKey);
-        if (null != customStateView) {
-            customStateView.setVisibility(GONE);
+    /**
+     * Start animator, leaving what the framework allocates to run it out of the
+     * warm transition check of the layout, and note that the transition is animated.
+     *
+     * @param animator animator
+     */
+    private void startAnimator(Animator animator) {
+        mTransitionAnimated = true;
+        int allocationStart = mCheckAllocations ? AllocationTracker.count() : 0;
+        animator.start();
+        if (mCheckAllocations) {
+            mUncheckedAllocations += AllocationTracker.count() - allocationStart;
         }
     }
 
     /**
-     * Show view by current state
+     * Report a listener or the metrics sink that allocated during a warm transition.
+     * Its allocations are not counted against the layout.
      *
-     * @param state state
+     * @param listener        listener just called
+     * @param state           state or custom state key changed to
+     * @param allocationStart allocation count before the call
      */
-    private void showViewByState(@State int state) {
-        switch (state) {
-            case State.CONTENT:
-                showContentView();
-                break;
-            case State.EMPTY:
-                showEmptyView();
-                break;
-            case State.LOADING:
-                showLoadingView();
-                break;
-            case State.ERROR:
-                showErrorView();
-                break;
-            case State.NETWORK_ERROR:
-                showNetworkErrorView();
-                break;
-            default:
-                break;
+    private void checkListenerAllocations(Object listener, int state, int allocationStart) {
+        if (!mCheckAllocations) {
+            return;
+        }
+        int allocations = AllocationTracker.count() - allocationStart;
+        mUncheckedAllocations += allocations;
+        if (allocations > 0) {
+            AllocationTracker.report(listener, state, !mIsSystemState, allocations);
         }
-        mCurState = state;
-        mIsSystemState = true;
-        dispatchStateChangedAction(state);
     }
 
     /**
-     * Call onChanged(state) when state has changed.
-     * @param state state
+     * Start alpha animation, reusing the animator cached on the target view
+     *
+     * @param targetView target view
      */
-    private void dispatchStateChangedAction(int state) {
-        if (mOnStateChangedListeners != null && mOnStateChangedListeners.size() > 0) {
-            for (OnStateChangedListener onStateChangedListener : mOnStateChangedListeners) {
-                onStateChangedListener.onChanged(state);
-            }
+    private void execAlphaAnimation(View targetView) {
+        if (null == targetView) {
+            return;
+        }
+
+        boolean trace = StateTrace.isEnabled();
+        if (trace) {
+            StateTrace.beginSection("animate", mIsSystemState ? mCurState : mCurCustomStateKey, !mIsSystemState, null, -1);
+        }
+        mAlphaAnimator = obtainTransitionAnimator(targetView);
+        updateCrossfadeListener(targetView, mAlphaAnimator);
+        startAnimator(mAlphaAnimator);
+        if (trace) {
+            StateTrace.endSection();
         }
     }
 
     /**
-     * Show custom view by the custom state key
+     * Return the transition animator of targetView. It is created once, by the
+     * TransitionAnimatorLoader if any, cached on the view and reused afterwards.
      *
-     * @param customStateKey custom state key
+     * @param targetView target view
+     * @return animator
      */
-    private void showCustomViewByState(int customStateKey) {
-        View customStateView = findCustomStateViewByKey(customStateKey);
-        if (null != customStateView) {
-            customStateView.setVisibility(VISIBLE);
-            if (mAnimEnable) {
-                execAlphaAnimation(customStateView);
+    private ObjectAnimator obtainTransitionAnimator(View targetView) {
+        ObjectAnimator animator = (ObjectAnimator) targetView.getTag(R.id.multi_state_transition_animator);
+        if (null != animator && targetView.getTag(R.id.multi_state_transition_loader) == mTransitionAnimatorLoader) {
+            if (animator.getTarget() != targetView) {
+                animator.setTarget(targetView);
             }
+            if (animator.getInterpolator() == sAlphaInterpolator) {
+                animator.setDuration(mAnimDuration);
+            }
+            return animator;
         }
 
-        mCurCustomStateKey = customStateKey;
-        mIsSystemState = false;
-        dispatchStateChangedAction(customStateKey);
+        animator = null == mTransitionAnimatorLoader ? null : mTransitionAnimatorLoader.onCreateAnimator(targetView);
+        if (null == animator) {
+            animator = ObjectAnimator.ofFloat(targetView, "alpha", 0.0f, 1.0f);
+            animator.setInterpolator(sAlphaInterpolator);
+            animator.setDuration(mAnimDuration);
+        }
+        targetView.setTag(R.id.multi_state_transition_animator, animator);
+        targetView.setTag(R.id.multi_state_transition_loader, mTransitionAnimatorLoader);
+        targetView.setTag(R.id.multi_state_transition_listener, null);
+        return animator;
     }
 
     /**
-     * Start alpha animation
+     * Keep the hardware layer listener on the fade in animator only while
+     * crossfading. An animator without listeners doesn't copy its listener
+     * list on start and cancel, so plain fades stay allocation free.
      *
      * @param targetView target view
+     * @param animator   fade in animator of targetView
      */
-    private void execAlphaAnimation(View targetView) {
-        if (null == targetView) {
-            return;
+    private void updateCrossfadeListener(View targetView, ObjectAnimator animator) {
+        CrossfadeListener listener = (CrossfadeListener) targetView.getTag(R.id.multi_state_transition_listener);
+        if (mCrossfadeEnable && null == listener) {
+            listener = new CrossfadeListener(targetView);
+            listener.setLayerEnabled(true);
+            animator.addListener(listener);
+            targetView.setTag(R.id.multi_state_transition_listener, listener);
+        } else if (!mCrossfadeEnable && null != listener) {
+            animator.removeListener(listener);
+            targetView.setTag(R.id.multi_state_transition_listener, null);
         }
+    }
 
-        if (null == mTransitionAnimatorLoader || null == mTransitionAnimatorLoader.onCreateAnimator(targetView)) {
-            mAlphaAnimator = ObjectAnimator.ofFloat(targetView, "alpha", 0.0f, 1.0f);
-            mAlphaAnimator.setInterpolator(new AccelerateInterpolator());
-            mAlphaAnimator.setDuration(mAnimDuration);
-        } else {
-            mAlphaAnimator = mTransitionAnimatorLoader.onCreateAnimator(targetView);
+    /**
+     * Forget the transition animators and listeners cached on view, e.g. before
+     * it is handed to another layout.
+     *
+     * @param view view
+     */
+    static void clearTransitionTags(View view) {
+        view.setTag(R.id.multi_state_transition_animator, null);
+        view.setTag(R.id.multi_state_transition_loader, null);
+        view.setTag(R.id.multi_state_transition_listener, null);
+        view.setTag(R.id.multi_state_fade_out_animator, null);
+        view.setTag(R.id.multi_state_fade_out_listener, null);
+    }
+
+    /**
+     * Return the fade out animator used when crossfading, cached on the target view.
+     *
+     * @param targetView       target view
+     * @param hiddenVisibility visibility applied once faded out
+     * @return animator
+     */
+    private ObjectAnimator obtainFadeOutAnimator(View targetView, int hiddenVisibility) {
+        ObjectAnimator animator = (ObjectAnimator) targetView.getTag(R.id.multi_state_fade_out_animator);
+        CrossfadeListener listener = (CrossfadeListener) targetView.getTag(R.id.multi_state_fade_out_listener);
+        if (null == animator || null == listener) {
+            animator = ObjectAnimator.ofFloat(targetView, "alpha", 1.0f, 0.0f);
+            animator.setInterpolator(sAlphaInterpolator);
+            listener = new CrossfadeListener(targetView);
+            listener.setLayerEnabled(true);
+            animator.addListener(listener);
+            targetView.setTag(R.id.multi_state_fade_out_animator, animator);
+            targetView.setTag(R.id.multi_state_fade_out_listener, listener);
+        }
+        listener.setHiddenVisibility(hiddenVisibility);
+        animator.setDuration(mAnimDuration);
+        return animator;
+    }
+
+    /**
+     * Keeps the animated view on a hardware layer for the duration of a crossfade,
+     * and hides the outgoing view once it has faded out.
+     */
+    private static class CrossfadeListener extends AnimatorListenerAdapter {
+
+        private final View mView;
+        private int mHiddenVisibility = VISIBLE;
+        private boolean mLayerEnabled;
+        private boolean mLayerApplied;
+        private int mLayerType;
+        private boolean mCanceled;
+
+        CrossfadeListener(View view) {
+            mView = view;
+        }
+
+        /**
+         * @param hiddenVisibility visibility applied once faded out, VISIBLE to keep the view
+         */
+        void setHiddenVisibility(int hiddenVisibility) {
+            mHiddenVisibility = hiddenVisibility;
+        }
+
+        void setLayerEnabled(boolean layerEnabled) {
+            mLayerEnabled = layerEnabled;
+        }
+
+        @Override
+        public void onAnimationStart(Animator animation) {
+            mCanceled = false;
+            mLayerApplied = mLayerEnabled && mView.getLayerType() != LAYER_TYPE_HARDWARE;
+            if (mLayerApplied) {
+                mLayerType = mView.getLayerType();
+                mView.setLayerType(LAYER_TYPE_HARDWARE, null);
+            }
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            mCanceled = true;
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (mLayerApplied) {
+                mView.setLayerType(mLayerType, null);
+                mLayerApplied = false;
+            }
+            if (mHiddenVisibility != VISIBLE) {
+                if (!mCanceled) {
+                    mView.setVisibility(mHiddenVisibility);
+                }
+                mView.setAlpha(1.0f);
+            }
         }
-        mAlphaAnimator.start();
     }
 
     /**
-     * Show content view without animation
+     * Show content view, animated only when crossfading
      */
     private void showContentView() {
-        if (null != mContentView) {
+        if (null == mContentView) {
+            return;
+        }
+        if (mAnimEnable && mCrossfadeEnable
+                && (mContentView.getVisibility() != VISIBLE || isFadingOut(mContentView))) {
+            showStateView(mContentView);
+        } else {
             mContentView.setVisibility(VISIBLE);
         }
     }
 
     /**
-     * Show customize empty view
+     * Return the view of a state, creating it from its layout resource if needed.
+     * The view is taken from the shared pool when possible, then inflated
+     * synchronously or, if allowed, asynchronously.
+     *
+     * @param record     state record
+     * @param allowAsync allow async inflation, null is returned while pending
+     * @return view or null
      */
-    private void showEmptyView() {
-        if (null == mEmptyView && mEmptyResId > -1) {
-            mEmptyView = mInflater.inflate(mEmptyResId, this, false);
-            addView(mEmptyView, mEmptyView.getLayoutParams());
-            callViewCreated(mEmptyView, State.EMPTY);
+    private View obtainStateView(StateRegistry.Record record, boolean allowAsync) {
+        View view = record.view;
+        int resId = record.resId;
+        if (null != view || resId <= -1) {
+            return view;
+        }
+
+        if (isStateViewPooling()) {
+            view = StateViewPool.getInstance().acquire(resId, getContext());
         }
-        if (null != mEmptyView) {
-            mEmptyView.setVisibility(VISIBLE);
-            if (mAnimEnable) {
-                execAlphaAnimation(mEmptyView);
+        if (null == view) {
+            mStateInflated = true;
+            if (allowAsync && (mAsyncInflateEnable || mItemMode)) {
+                inflateStateViewAsync(record);
+                return null;
+            }
+            boolean trace = StateTrace.isEnabled();
+            if (trace) {
+                StateTrace.beginSection("inflate", record.key, record.custom, getResources(), resId);
+            }
+            try {
+                view = isStateViewPooling()
+                        ? mInflater.cloneInContext(new MutableContextWrapper(getContext())).inflate(resId, this, false)
+                        : mInflater.inflate(resId, this, false);
+            } finally {
+                if (trace) {
+                    StateTrace.endSection();
+                }
             }
-        } else {
-            throw new NullPointerException("Expect to have an empty view.");
         }
+        attachStateView(record, view);
+        return view;
     }
 
     /**
-     * Show customize loading view
+     * Add a newly created state view as a hidden child and notify listener.
+     *
+     * @param record state record
+     * @param view   view
      */
-    private void showLoadingView() {
-        if (null == mLoadingView && mLoadingResId > -1) {
-            mLoadingView = mInflater.inflate(mLoadingResId, this, false);
-            addView(mLoadingView, mLoadingView.getLayoutParams());
-            callViewCreated(mLoadingView, State.LOADING);
+    private void attachStateView(StateRegistry.Record record, View view) {
+        mStateViewAttached = true;
+        record.view = view;
+        record.flags |= StateRegistry.Record.FLAG_INFLATED;
+        if (isStateViewPooling()) {
+            record.flags |= StateRegistry.Record.FLAG_POOLED;
         }
-        if (null != mLoadingView) {
-            mLoadingView.setVisibility(VISIBLE);
-            if (mAnimEnable) {
-                execAlphaAnimation(mLoadingView);
+        addView(view, view.getLayoutParams());
+        view.setVisibility(GONE);
+        callViewCreated(view, record);
+    }
+
+    /**
+     * Return views inflated from layout resources to the shared pool.
+     * Views set through setXXXView(View) or putCustomStateView are never pooled,
+     * neither are views handed to app code that nobody resets.
+     */
+    private void releaseStateViewsToPool() {
+        for (int slot = 0; slot < mStateRegistry.slotCount(); slot++) {
+            StateRegistry.Record record = mStateRegistry.recordAt(slot);
+            if (null == record || null == record.view || !isRecyclable(record)) {
+                continue;
             }
-        } else {
-            throw new NullPointerException("Expect to have an loading view.");
+            View view = record.view;
+            removeView(view);
+            record.view = null;
+            recycleStateView(record, view);
+        }
+    }
+
+    /**
+     * @param record state record
+     * @return true if the view of the state can go back to the pool
+     */
+    private boolean isRecyclable(StateRegistry.Record record) {
+        return record.hasFlag(StateRegistry.Record.FLAG_POOLED)
+                && (!record.hasFlag(StateRegistry.Record.FLAG_EXPOSED) || null != mOnStateViewRecycledListener);
+    }
+
+    /**
+     * Return a view removed from this layout to the pool, reset first by the
+     * listener if app code has seen it, and forget how it was created.
+     *
+     * @param record state record
+     * @param view   view without parent
+     */
+    private void recycleStateView(StateRegistry.Record record, View view) {
+        updateOverlayTouchTarget();
+        boolean recyclable = isRecyclable(record);
+        if (recyclable && record.hasFlag(StateRegistry.Record.FLAG_EXPOSED)) {
+            mOnStateViewRecycledListener.onStateViewRecycled(view, record.key);
         }
+        clearStateViewFlags(record);
+        if (recyclable) {
+            StateViewPool.getInstance().release(record.resId, view);
+        }
+    }
+
+    /**
+     * Forget how the view of a state was created, once it is replaced or released.
+     *
+     * @param record state record
+     */
+    private static void clearStateViewFlags(StateRegistry.Record record) {
+        record.flags &= ~(StateRegistry.Record.FLAG_INFLATED | StateRegistry.Record.FLAG_POOLED
+                | StateRegistry.Record.FLAG_EXPOSED);
     }
 
     /**
-     * Show customize error view
+     * Remove state views inflated from layout resources that have been hidden
+     * for longer than the release TTL. They are rebuilt from their resource
+     * when needed again. Views set through setXXXView(View) or putCustomStateView
+     * are kept since they can't be rebuilt, and so are views handed to app code
+     * unless an OnStateViewCreatedListener can set them up again.
      */
-    private void showErrorView() {
-        if (null == mErrorView && mErrorResId > -1) {
-            mErrorView = mInflater.inflate(mErrorResId, this, false);
-            addView(mErrorView, mErrorView.getLayoutParams());
-            callViewCreated(mErrorView, State.ERROR);
+    private void releaseHiddenStateViews() {
+        long now = SystemClock.uptimeMillis();
+        StateRegistry.Record current = getCurrentRecord();
+        for (int slot = 0; slot < mStateRegistry.slotCount(); slot++) {
+            StateRegistry.Record record = mStateRegistry.recordAt(slot);
+            if (null == record || record == current || null == record.view
+                    || !record.hasFlag(StateRegistry.Record.FLAG_INFLATED) || record.view.getVisibility() != GONE
+                    || now - record.hiddenTime < mStateViewReleaseTtl || !isRebuildable(record)) {
+                continue;
+            }
+            View view = record.view;
+            removeView(view);
+            record.view = null;
+            recycleStateView(record, view);
         }
-        if (null != mErrorView) {
-            mErrorView.setVisibility(VISIBLE);
-            if (mAnimEnable) {
-                execAlphaAnimation(mErrorView);
+    }
+
+    /**
+     * @param record record of a view inflated from its resource
+     * @return true if a view created again from the resource would look the same to the app
+     */
+    private boolean isRebuildable(StateRegistry.Record record) {
+        return !record.hasFlag(StateRegistry.Record.FLAG_EXPOSED) || null != mOnStateViewCreatedListener;
+    }
+
+    private final ComponentCallbacks2 mComponentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                releaseHiddenStateViews();
             }
+        }
+
+        @Override
+        public void onLowMemory() {
+            releaseHiddenStateViews();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
+    /**
+     * Listen to memory pressure only while attached with a release TTL, so that
+     * layouts that never release skip the application callback list, which is
+     * synchronized and O(n) to remove from, on every attach and detach.
+     *
+     * @param registered registered
+     */
+    private void setComponentCallbacksRegistered(boolean registered) {
+        if (mComponentCallbacksRegistered == registered) {
+            return;
+        }
+        mComponentCallbacksRegistered = registered;
+        if (registered) {
+            getContext().getApplicationContext().registerComponentCallbacks(mComponentCallbacks);
         } else {
-            throw new NullPointerException("Expect to have one error view.");
+            getContext().getApplicationContext().unregisterComponentCallbacks(mComponentCallbacks);
         }
     }
 
+    private boolean isStateViewPooling() {
+        return mStateViewPoolEnable || mItemMode;
+    }
+
     /**
-     * Show customize network error view
+     * Request an async inflation of the state layout, at most once at a time per state.
+     * Whether the view fades in when it arrives follows the latest request, e.g. a
+     * view requested by bindState never animates.
+     *
+     * @param record state record
      */
-    private void showNetworkErrorView() {
-        if (null == mNetworkErrorView && mNetworkErrorResId > -1) {
-            mNetworkErrorView = mInflater.inflate(mNetworkErrorResId, this, false);
-            addView(mNetworkErrorView, mNetworkErrorView.getLayoutParams());
-            callViewCreated(mNetworkErrorView, State.NETWORK_ERROR);
+    private void inflateStateViewAsync(StateRegistry.Record record) {
+        if (mAnimEnable) {
+            record.flags |= StateRegistry.Record.FLAG_PENDING_ANIMATE;
+        } else {
+            record.flags &= ~StateRegistry.Record.FLAG_PENDING_ANIMATE;
         }
-        if (null != mNetworkErrorView) {
-            mNetworkErrorView.setVisibility(VISIBLE);
-            if (mAnimEnable) {
-                execAlphaAnimation(mNetworkErrorView);
+        if (record.hasFlag(StateRegistry.Record.FLAG_PENDING)) {
+            return;
+        }
+        if (null == mAsyncInflater) {
+            mAsyncInflater = new AsyncStateInflater(getContext());
+        }
+        record.flags |= StateRegistry.Record.FLAG_PENDING;
+        mAsyncInflater.inflate(record.resId, this, record.key, record.custom, isStateViewPooling(), mOnInflateFinishedListener);
+    }
+
+    private final AsyncStateInflater.OnInflateFinishedListener mOnInflateFinishedListener = new AsyncStateInflater.OnInflateFinishedListener() {
+        @Override
+        public void onInflateFinished(View view, int resId, int state, boolean customState) {
+            StateRegistry.Record record = mStateRegistry.get(state, customState);
+            boolean animate = record.hasFlag(StateRegistry.Record.FLAG_PENDING_ANIMATE);
+            record.flags &= ~(StateRegistry.Record.FLAG_PENDING | StateRegistry.Record.FLAG_PENDING_ANIMATE);
+            // drop the result if the layout was replaced or a view was set meanwhile
+            if (resId != record.resId || null != record.view) {
+                return;
+            }
+            attachStateView(record, view);
+
+            if (record == getCurrentRecord()) {
+                showStateView(view, animate);
+                updateOverlayTouchTarget();
             }
-        } else {
-            throw new NullPointerException("Expect to have one network error view.");
         }
+    };
+
+    /**
+     * Get the record of the displayed state
+     *
+     * @return record, null for CONTENT or an unknown custom state
+     */
+    private StateRegistry.Record getCurrentRecord() {
+        if (mIsSystemState) {
+            return mCurState == State.CONTENT ? null : mStateRegistry.get(mCurState, false);
+        }
+        return mStateRegistry.get(mCurCustomStateKey, true);
+    }
+
+    /**
+     * Get the view of the displayed state, without inflating it
+     *
+     * @return view or null
+     */
+    private View getCurrentStateView() {
+        if (mIsSystemState && mCurState == State.CONTENT) {
+            return mContentView;
+        }
+        StateRegistry.Record record = getCurrentRecord();
+        return null == record ? null : record.view;
     }
 
     /**
@@ -729,20 +2433,7 @@ public class MultiStateLayout extends FrameLayout {
      * @return resource id
      */
     private int getCommonLayoutResIdByState(@State int state) {
-        switch (state) {
-            case State.EMPTY:
-                return null == mCommonConfiguration ? -1 : mCommonConfiguration.getCommonEmptyLayout();
-            case State.LOADING:
-                return null == mCommonConfiguration ? -1 : mCommonConfiguration.getCommonLoadingLayout();
-            case State.ERROR:
-                return null == mCommonConfiguration ? -1 : mCommonConfiguration.getCommonErrorLayout();
-            case State.NETWORK_ERROR:
-                return null == mCommonConfiguration ? -1 : mCommonConfiguration.getCommonNetworkErrorLayout();
-            case State.CONTENT:
-                return -1;
-            default:
-                return 0;
-        }
+        return null == mCommonConfiguration ? -1 : mCommonConfiguration.getCommonLayout(state);
     }
 
     /**
@@ -754,6 +2445,114 @@ public class MultiStateLayout extends FrameLayout {
         return null != mCommonConfiguration && mCommonConfiguration.isAnimEnable();
     }
 
+    /**
+     * Get async inflation status from common settings
+     *
+     * @return asyncInflateEnable
+     */
+    private boolean isCommonAsyncInflateEnable() {
+        return null != mCommonConfiguration && mCommonConfiguration.isAsyncInflateEnable();
+    }
+
+    /**
+     * Get state view pool status from common settings
+     *
+     * @return stateViewPoolEnable
+     */
+    private boolean isCommonStateViewPoolEnable() {
+        return null != mCommonConfiguration && mCommonConfiguration.isStateViewPoolEnable();
+    }
+
+    /**
+     * Get coalescing status from common settings
+     *
+     * @return coalesceEnable
+     */
+    private boolean isCommonCoalesceEnable() {
+        return null != mCommonConfiguration && mCommonConfiguration.isCoalesceEnable();
+    }
+
+    /**
+     * Get show delay from common settings
+     *
+     * @return showDelay
+     */
+    private int getCommonShowDelay() {
+        return null == mCommonConfiguration ? 0 : mCommonConfiguration.getShowDelay();
+    }
+
+    /**
+     * Get min show time from common settings
+     *
+     * @return minShowTime
+     */
+    private int getCommonMinShowTime() {
+        return null == mCommonConfiguration ? 0 : mCommonConfiguration.getMinShowTime();
+    }
+
+    /**
+     * Get crossfade status from common settings
+     *
+     * @return crossfadeEnable
+     */
+    private boolean isCommonCrossfadeEnable() {
+        return null != mCommonConfiguration && mCommonConfiguration.isCrossfadeEnable();
+    }
+
+    /**
+     * Get skeleton loading status from common settings
+     *
+     * @return skeletonLoadingEnable
+     */
+    private boolean isCommonSkeletonLoadingEnable() {
+        return null != mCommonConfiguration && mCommonConfiguration.isSkeletonLoadingEnable();
+    }
+
+    /**
+     * Get state view release TTL from common settings
+     *
+     * @return stateViewReleaseTtl
+     */
+    private long getCommonStateViewReleaseTtl() {
+        return null == mCommonConfiguration ? -1 : mCommonConfiguration.getStateViewReleaseTtl();
+    }
+
+    /**
+     * Get metrics status from common settings
+     *
+     * @return metricsEnable
+     */
+    private boolean isCommonMetricsEnable() {
+        return null != mCommonConfiguration && mCommonConfiguration.isMetricsEnable();
+    }
+
+    /**
+     * Get frame monitor status from common settings
+     *
+     * @return frameMonitorEnable
+     */
+    private boolean isCommonFrameMonitorEnable() {
+        return null != mCommonConfiguration && mCommonConfiguration.isFrameMonitorEnable();
+    }
+
+    /**
+     * Get metrics sink from common settings
+     *
+     * @return metricsSink
+     */
+    private StateMetricsSink getCommonMetricsSink() {
+        return null == mCommonConfiguration ? null : mCommonConfiguration.getMetricsSink();
+    }
+
+    /**
+     * Get content hide strategy from common settings
+     *
+     * @return contentHideStrategy
+     */
+    private int getCommonContentHideStrategy() {
+        return null == mCommonConfiguration ? ContentHideStrategy.GONE : mCommonConfiguration.getContentHideStrategy();
+    }
+
     /**
      * Get anim duration from common settings
      *
@@ -766,12 +2565,31 @@ public class MultiStateLayout extends FrameLayout {
     /**
      * Called it on view created
      *
-     * @param view  state view
-     * @param state state
+     * @param view   state view
+     * @param record state record
      */
-    private void callViewCreated(View view, int state) {
+    private void callViewCreated(View view, StateRegistry.Record record) {
+        // the listener may change anything, fall back to a regular layout pass
+        if (mSuppressLayoutRequest) {
+            mSuppressLayoutRequest = false;
+            if (mLayoutRequestSuppressed) {
+                mLayoutRequestSuppressed = false;
+                super.requestLayout();
+            }
+        }
         if (null != mOnStateViewCreatedListener) {
-            mOnStateViewCreatedListener.onViewCreated(view, state);
+            record.flags |= StateRegistry.Record.FLAG_EXPOSED;
+            boolean trace = StateTrace.isEnabled();
+            if (trace) {
+                StateTrace.beginSection("onViewCreated", record.key, record.custom, getResources(), record.resId);
+            }
+            try {
+                mOnStateViewCreatedListener.onViewCreated(view, record.key);
+            } finally {
+                if (trace) {
+                    StateTrace.endSection();
+                }
+            }
         }
     }
 
@@ -0,0 +1,28 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+/**
+ * Listener notified each time {@link StateFrameMonitor} completes a record.
+ */
+public interface OnStateFrameRecordListener {
+
+    /**
+     * Called on the main thread once the frames after a state change are recorded.
+     * @param record reused record, only valid during this call
+     */
+    void onStateFrameRecorded(StateFrameRecord record);
+}
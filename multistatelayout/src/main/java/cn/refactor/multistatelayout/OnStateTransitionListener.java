@@ -0,0 +1,29 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+/**
+ * Listener notified with the previous state on every state change.
+ */
+public interface OnStateTransitionListener {
+
+    /**
+     * Called when state has changed.
+     * @param previousState state or custom state key displayed before
+     * @param state         state or custom state key displayed now
+     */
+    void onTransition(int previousState, int state);
+}
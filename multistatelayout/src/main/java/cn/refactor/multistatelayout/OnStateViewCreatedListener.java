@@ -28,7 +28,7 @@ public interface OnStateViewCreatedListener {
     /**
      * Called on state view created.
      * @param view  state view
-     * @param state state
+     * @param state state, or customise key for layouts put by putCustomStateLayout
      */
     void onViewCreated(View view, int state);
 }
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.refactor.multistatelayout;
+
+import android.view.View;
+
+/**
+ * Resets a state view before it goes back to the shared state view pool, where
+ * it may be handed to another layout. Clear everything bound in
+ * OnStateViewCreatedListener or through the getXXXView() accessors: click
+ * listeners, text, anything referencing the owner.
+ */
+public interface OnStateViewRecycledListener {
+
+    /**
+     * Called before a state view is returned to the pool.
+     * @param view  state view
+     * @param state state
+     */
+    void onStateViewRecycled(View view, int state);
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.refactor.multistatelayout;
+
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+/**
+ * Paint sweeping a single horizontal LinearGradient across a width.
+ * The shader is only rebuilt when the width changes, animating it is a matrix translation.
+ */
+final class ShimmerPainter {
+
+    static final int DEFAULT_DURATION = 1200;
+
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Matrix mMatrix = new Matrix();
+    private final int[] mColors;
+    private final float[] mPositions = {0.0f, 0.5f, 1.0f};
+    private final int mDuration;
+    private LinearGradient mShader;
+    private int mWidth;
+
+    ShimmerPainter(int baseColor, int highlightColor, int duration) {
+        mColors = new int[]{baseColor, highlightColor, baseColor};
+        mDuration = duration > 0 ? duration : DEFAULT_DURATION;
+    }
+
+    /**
+     * Move the gradient to its position at uptimeMillis.
+     *
+     * @param width        width swept by the gradient
+     * @param uptimeMillis current time
+     * @return paint to draw with
+     */
+    Paint update(int width, long uptimeMillis) {
+        if (null == mShader || width != mWidth) {
+            mWidth = width;
+            mShader = new LinearGradient(0, 0, Math.max(1, width), 0, mColors, mPositions, Shader.TileMode.CLAMP);
+            mPaint.setShader(mShader);
+        }
+        float progress = (uptimeMillis % mDuration) / (float) mDuration;
+        mMatrix.setTranslate((progress * 2 - 1) * width, 0);
+        mShader.setLocalMatrix(mMatrix);
+        return mPaint;
+    }
+}
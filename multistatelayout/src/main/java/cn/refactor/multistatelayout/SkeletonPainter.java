@@ -0,0 +1,121 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.refactor.multistatelayout;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Skeleton made of rounded "bones" drawn with one shimmering shader.
+ * Bones are either derived from the bounds of the leaf views of the content view,
+ * or declared up front. Bone rects are reused between collections.
+ */
+final class SkeletonPainter {
+
+    private static final int BASE_COLOR = 0xFFE8E8E8;
+    private static final int HIGHLIGHT_COLOR = 0xFFF7F7F7;
+
+    private final ShimmerPainter mShimmerPainter = new ShimmerPainter(BASE_COLOR, HIGHLIGHT_COLOR, ShimmerPainter.DEFAULT_DURATION);
+    private RectF[] mBones = new RectF[0];
+    private int mBoneCount;
+    private boolean mDeclared;
+    private float mCornerRadius;
+
+    SkeletonPainter(float cornerRadius) {
+        mCornerRadius = cornerRadius;
+    }
+
+    void setCornerRadius(float cornerRadius) {
+        mCornerRadius = cornerRadius;
+    }
+
+    /**
+     * Use declared bones instead of deriving them from the content view.
+     *
+     * @param bones bones relative to the layout, null to derive them again
+     */
+    void setBones(RectF[] bones) {
+        mBoneCount = 0;
+        mDeclared = null != bones;
+        if (mDeclared) {
+            for (RectF bone : bones) {
+                obtainBone().set(bone);
+            }
+        }
+    }
+
+    /**
+     * Collect bones from the leaf views of content, unless bones were declared.
+     *
+     * @param content content view, laid out in the layout coordinates
+     */
+    void collectBones(View content) {
+        if (mDeclared) {
+            return;
+        }
+        mBoneCount = 0;
+        if (null != content) {
+            collectBones(content, 0, 0);
+        }
+    }
+
+    private void collectBones(View view, int offsetX, int offsetY) {
+        if (view.getVisibility() == View.GONE || view.getWidth() == 0 || view.getHeight() == 0) {
+            return;
+        }
+        int left = offsetX + view.getLeft();
+        int top = offsetY + view.getTop();
+        if (view instanceof ViewGroup && ((ViewGroup) view).getChildCount() > 0) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                collectBones(group.getChildAt(i), left - group.getScrollX(), top - group.getScrollY());
+            }
+        } else {
+            obtainBone().set(left, top, left + view.getWidth(), top + view.getHeight());
+        }
+    }
+
+    private RectF obtainBone() {
+        if (mBoneCount == mBones.length) {
+            RectF[] bones = new RectF[Math.max(8, mBones.length * 2)];
+            System.arraycopy(mBones, 0, bones, 0, mBones.length);
+            for (int i = mBones.length; i < bones.length; i++) {
+                bones[i] = new RectF();
+            }
+            mBones = bones;
+        }
+        return mBones[mBoneCount++];
+    }
+
+    /**
+     * Draw the bones with the shimmer at its current position.
+     *
+     * @param canvas canvas
+     * @param width  width swept by the shimmer
+     */
+    void draw(Canvas canvas, int width) {
+        Paint paint = mShimmerPainter.update(width, SystemClock.uptimeMillis());
+        for (int i = 0; i < mBoneCount; i++) {
+            canvas.drawRoundRect(mBones[i], mCornerRadius, mCornerRadius, paint);
+        }
+    }
+}
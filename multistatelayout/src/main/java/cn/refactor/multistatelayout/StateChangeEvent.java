@@ -0,0 +1,134 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import android.os.SystemClock;
+
+/**
+ * Describes a state change of {@link MultiStateLayout}. Events are pooled
+ * and recycled once every {@link OnStateChangeEventListener} has been called, so an
+ * event must not be kept beyond the callback, copy the values needed instead.
+ */
+public final class StateChangeEvent {
+
+    private static final int MAX_POOL_SIZE = 4;
+
+    private static StateChangeEvent sPool;
+    private static int sPoolSize;
+
+    private StateChangeEvent mNext;
+
+    private int mPreviousState;
+    private boolean mPreviousCustomState;
+    private int mState;
+    private boolean mCustomState;
+    private long mTimestamp;
+    private long mPreviousStateDuration;
+
+    private StateChangeEvent() {
+    }
+
+    /**
+     * Obtain an event from the pool, must be called on the main thread.
+     */
+    static StateChangeEvent obtain(int previousState, boolean previousCustomState,
+                                   int state, boolean customState, long timestamp, long previousStateDuration) {
+        StateChangeEvent event = sPool;
+        if (null != event) {
+            sPool = event.mNext;
+            event.mNext = null;
+            sPoolSize--;
+        } else {
+            event = new StateChangeEvent();
+        }
+        event.mPreviousState = previousState;
+        event.mPreviousCustomState = previousCustomState;
+        event.mState = state;
+        event.mCustomState = customState;
+        event.mTimestamp = timestamp;
+        event.mPreviousStateDuration = previousStateDuration;
+        return event;
+    }
+
+    /**
+     * Return the event to the pool, must be called on the main thread.
+     */
+    void recycle() {
+        if (sPoolSize < MAX_POOL_SIZE) {
+            mNext = sPool;
+            sPool = this;
+            sPoolSize++;
+        }
+    }
+
+    /**
+     * @return state or custom state key displayed before
+     */
+    @SuppressWarnings("unused")
+    public int getPreviousState() {
+        return mPreviousState;
+    }
+
+    /**
+     * @return true if {@link #getPreviousState()} is a custom state key
+     */
+    @SuppressWarnings("unused")
+    public boolean isPreviousCustomState() {
+        return mPreviousCustomState;
+    }
+
+    /**
+     * @return state or custom state key displayed now
+     */
+    @SuppressWarnings("unused")
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * @return true if {@link #getState()} is a custom state key
+     */
+    @SuppressWarnings("unused")
+    public boolean isCustomState() {
+        return mCustomState;
+    }
+
+    /**
+     * @return time of the change in {@link SystemClock#uptimeMillis()} base
+     */
+    @SuppressWarnings("unused")
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * @return milliseconds the previous state was displayed
+     */
+    @SuppressWarnings("unused")
+    public long getPreviousStateDuration() {
+        return mPreviousStateDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "StateChangeEvent{previousState=" + mPreviousState
+                + ", previousCustomState=" + mPreviousCustomState
+                + ", state=" + mState
+                + ", customState=" + mCustomState
+                + ", timestamp=" + mTimestamp
+                + ", previousStateDuration=" + mPreviousStateDuration + '}';
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+/**
+ * Records the Choreographer frame durations of the frames following each
+ * state change of the layouts it is enabled for, into a fixed-size ring of preallocated
+ * {@link StateFrameRecord}s, so nothing is allocated per frame. Enabled through
+ * MultiStateConfiguration.Builder.setFrameMonitorEnable, requires API 16.
+ */
+@MainThread
+public final class StateFrameMonitor {
+
+    public static final int DEFAULT_FRAME_COUNT = 10;
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private static StateFrameMonitor sInstance;
+
+    private StateFrameRecord[] mRecords;
+    private long[] mSequences;
+    private boolean[] mCompleted;
+    private long mNextSequence;
+    private StateFrameRecord mReportRecord;
+    private OnStateFrameRecordListener mListener;
+
+    private StateFrameMonitor() {
+        allocate(DEFAULT_CAPACITY, DEFAULT_FRAME_COUNT);
+    }
+
+    /**
+     * @return the process-wide monitor
+     */
+    @SuppressWarnings("unused")
+    public static StateFrameMonitor getInstance() {
+        if (null == sInstance) {
+            sInstance = new StateFrameMonitor();
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param listener notified of every completed record, null to remove
+     */
+    @SuppressWarnings("unused")
+    public void setListener(OnStateFrameRecordListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @return frames recorded after each state change
+     */
+    @SuppressWarnings("unused")
+    public int getFrameCount() {
+        return mReportRecord.mFrameTimeNanos.length;
+    }
+
+    /**
+     * @return records the ring holds
+     */
+    @SuppressWarnings("unused")
+    public int getCapacity() {
+        return mRecords.length;
+    }
+
+    /**
+     * @return number of records available through {@link #getRecord(int, StateFrameRecord)}
+     */
+    @SuppressWarnings("unused")
+    public int getRecordCount() {
+        return (int) Math.min(mNextSequence, mRecords.length);
+    }
+
+    /**
+     * Copy a record, the oldest one first.
+     *
+     * @param index index less than {@link #getRecordCount()}
+     * @param out   record to copy into
+     * @return false if the record is still being recorded
+     */
+    @SuppressWarnings("unused")
+    public boolean getRecord(int index, StateFrameRecord out) {
+        if (index < 0 || index >= getRecordCount()) {
+            return false;
+        }
+        int slot = (int) ((mNextSequence - getRecordCount() + index) % mRecords.length);
+        if (!mCompleted[slot]) {
+            return false;
+        }
+        out.copyFrom(mRecords[slot]);
+        return true;
+    }
+
+    /**
+     * @return a record sized to be passed to {@link #getRecord(int, StateFrameRecord)}
+     */
+    @SuppressWarnings("unused")
+    public StateFrameRecord newRecord() {
+        return new StateFrameRecord(getFrameCount());
+    }
+
+    /**
+     * Drop all records, the changes being recorded are abandoned.
+     */
+    @SuppressWarnings("unused")
+    public void clear() {
+        allocate(mRecords.length, getFrameCount());
+    }
+
+    /**
+     * Resize the ring, dropping all records.
+     */
+    void configure(int capacity, int frameCount) {
+        if (capacity != mRecords.length || frameCount != getFrameCount()) {
+            allocate(Math.max(1, capacity), Math.max(1, frameCount));
+        }
+    }
+
+    private void allocate(int capacity, int frameCount) {
+        mRecords = new StateFrameRecord[capacity];
+        for (int i = 0; i < capacity; i++) {
+            mRecords[i] = new StateFrameRecord(frameCount);
+        }
+        mSequences = new long[capacity];
+        mCompleted = new boolean[capacity];
+        mReportRecord = new StateFrameRecord(frameCount);
+        mNextSequence = 0;
+    }
+
+    private long begin(int previousState, boolean previousCustomState, int state, boolean customState,
+                       boolean inflated, boolean animated) {
+        long sequence = mNextSequence++;
+        int slot = (int) (sequence % mRecords.length);
+        StateFrameRecord record = mRecords[slot];
+        record.mPreviousState = previousState;
+        record.mPreviousCustomState = previousCustomState;
+        record.mState = state;
+        record.mCustomState = customState;
+        record.mInflated = inflated;
+        record.mAnimated = animated;
+        record.mTimestamp = SystemClock.uptimeMillis();
+        record.mFrameCount = 0;
+        record.mDroppedFrames = 0;
+        record.mMaxFrameTimeNanos = 0;
+        mSequences[slot] = sequence;
+        mCompleted[slot] = false;
+        return sequence;
+    }
+
+    /**
+     * @return record of sequence, null if it was dropped or overwritten meanwhile
+     */
+    private StateFrameRecord recordOf(long sequence) {
+        int slot = (int) (sequence % mRecords.length);
+        return sequence < mNextSequence && mSequences[slot] == sequence && !mCompleted[slot] ? mRecords[slot] : null;
+    }
+
+    private void complete(long sequence) {
+        StateFrameRecord record = recordOf(sequence);
+        if (null == record) {
+            return;
+        }
+        mCompleted[(int) (sequence % mRecords.length)] = true;
+        if (null != mListener) {
+            mReportRecord.copyFrom(record);
+            mListener.onStateFrameRecorded(mReportRecord);
+        }
+    }
+
+    /**
+     * Follows the frames after the state changes of one layout.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    static final class FrameTracker implements Choreographer.FrameCallback {
+
+        private static final float DEFAULT_REFRESH_RATE = 60f;
+
+        private final long mFrameIntervalNanos;
+        private long mSequence = -1;
+        private long mLastFrameTimeNanos;
+
+        FrameTracker(Context context) {
+            WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+            float refreshRate = null == wm ? 0 : wm.getDefaultDisplay().getRefreshRate();
+            mFrameIntervalNanos = (long) (1000000000L / (refreshRate > 1f ? refreshRate : DEFAULT_REFRESH_RATE));
+        }
+
+        static boolean isSupported() {
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+        }
+
+        /**
+         * Start recording a state change, completing the one being recorded if any.
+         */
+        void start(int previousState, boolean previousCustomState, int state, boolean customState,
+                   boolean inflated, boolean animated) {
+            stop();
+            mSequence = getInstance().begin(previousState, previousCustomState, state, customState, inflated, animated);
+            mLastFrameTimeNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        /**
+         * Complete the state change being recorded with the frames recorded so far.
+         */
+        void stop() {
+            if (mSequence < 0) {
+                return;
+            }
+            Choreographer.getInstance().removeFrameCallback(this);
+            getInstance().complete(mSequence);
+            mSequence = -1;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            StateFrameRecord record = mSequence < 0 ? null : getInstance().recordOf(mSequence);
+            if (null == record) {
+                mSequence = -1;
+                return;
+            }
+            // the first frame only sets the reference, the frame it starts carries the change
+            if (mLastFrameTimeNanos != 0) {
+                long frameTimeDelta = frameTimeNanos - mLastFrameTimeNanos;
+                record.mFrameTimeNanos[record.mFrameCount++] = frameTimeDelta;
+                record.mMaxFrameTimeNanos = Math.max(record.mMaxFrameTimeNanos, frameTimeDelta);
+                record.mDroppedFrames += Math.max(0, (frameTimeDelta + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1);
+                if (record.mFrameCount == record.mFrameTimeNanos.length) {
+                    stop();
+                    return;
+                }
+            }
+            mLastFrameTimeNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
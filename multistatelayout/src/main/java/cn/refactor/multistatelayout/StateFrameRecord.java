@@ -0,0 +1,146 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+/**
+ * Frame durations recorded by {@link StateFrameMonitor} after a state change.
+ * Instances are filled in place and reused, copy the values needed instead of keeping one.
+ */
+public final class StateFrameRecord {
+
+    int mPreviousState;
+    boolean mPreviousCustomState;
+    int mState;
+    boolean mCustomState;
+    boolean mInflated;
+    boolean mAnimated;
+    long mTimestamp;
+    int mFrameCount;
+    int mDroppedFrames;
+    long mMaxFrameTimeNanos;
+    long[] mFrameTimeNanos;
+
+    StateFrameRecord(int maxFrameCount) {
+        mFrameTimeNanos = new long[maxFrameCount];
+    }
+
+    /**
+     * @return state or custom state key displayed before
+     */
+    @SuppressWarnings("unused")
+    public int getPreviousState() {
+        return mPreviousState;
+    }
+
+    /**
+     * @return true if {@link #getPreviousState()} is a custom state key
+     */
+    @SuppressWarnings("unused")
+    public boolean isPreviousCustomState() {
+        return mPreviousCustomState;
+    }
+
+    /**
+     * @return state or custom state key displayed now
+     */
+    @SuppressWarnings("unused")
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * @return true if {@link #getState()} is a custom state key
+     */
+    @SuppressWarnings("unused")
+    public boolean isCustomState() {
+        return mCustomState;
+    }
+
+    /**
+     * @return true if a state view was inflated for the change
+     */
+    @SuppressWarnings("unused")
+    public boolean isInflated() {
+        return mInflated;
+    }
+
+    /**
+     * @return true if the change was animated
+     */
+    @SuppressWarnings("unused")
+    public boolean isAnimated() {
+        return mAnimated;
+    }
+
+    /**
+     * @return time of the change in SystemClock.uptimeMillis() base
+     */
+    @SuppressWarnings("unused")
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * @return number of frames recorded, may be less than requested if the
+     * next state change or a detach came first
+     */
+    @SuppressWarnings("unused")
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return frames missed over the recorded frames, relative to the display refresh rate
+     */
+    @SuppressWarnings("unused")
+    public int getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    /**
+     * @return longest recorded frame in nanoseconds
+     */
+    @SuppressWarnings("unused")
+    public long getMaxFrameTimeNanos() {
+        return mMaxFrameTimeNanos;
+    }
+
+    /**
+     * @param index frame index, less than {@link #getFrameCount()}
+     * @return duration of the frame in nanoseconds
+     */
+    @SuppressWarnings("unused")
+    public long getFrameTimeNanos(int index) {
+        return mFrameTimeNanos[index];
+    }
+
+    void copyFrom(StateFrameRecord record) {
+        mPreviousState = record.mPreviousState;
+        mPreviousCustomState = record.mPreviousCustomState;
+        mState = record.mState;
+        mCustomState = record.mCustomState;
+        mInflated = record.mInflated;
+        mAnimated = record.mAnimated;
+        mTimestamp = record.mTimestamp;
+        mFrameCount = record.mFrameCount;
+        mDroppedFrames = record.mDroppedFrames;
+        mMaxFrameTimeNanos = record.mMaxFrameTimeNanos;
+        if (mFrameTimeNanos.length < record.mFrameCount) {
+            mFrameTimeNanos = new long[record.mFrameTimeNanos.length];
+        }
+        System.arraycopy(record.mFrameTimeNanos, 0, mFrameTimeNanos, 0, record.mFrameCount);
+    }
+}
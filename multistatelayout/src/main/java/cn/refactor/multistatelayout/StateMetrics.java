@@ -0,0 +1,223 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import android.util.SparseArray;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Dwell time and transition histograms of {@link MultiStateLayout}, kept
+ * globally and per metrics tag. Durations are counted into power of two buckets, bucket 0
+ * holds samples below 1 and bucket i samples in [2^(i-1), 2^i), the last one is open ended.
+ * Counters are primitive atomic arrays, updated without locks on the main thread and
+ * readable from any thread. Custom state keys are only readable on the main thread.
+ */
+public final class StateMetrics {
+
+    public static final int BUCKET_COUNT = 20;
+
+    private static final int STATE_COUNT = MultiStateLayout.State.NETWORK_ERROR + 1;
+    private static final int ENTER_COUNT = 0;
+    private static final int DWELL_TOTAL = 1;
+    private static final int DWELL_BUCKETS = 2;
+    private static final int SLOT_SIZE = DWELL_BUCKETS + BUCKET_COUNT;
+
+    private static final StateMetrics GLOBAL = new StateMetrics(null);
+    private static final HashMap<String, StateMetrics> TAGGED = new HashMap<>();
+
+    private final String mTag;
+    // per state: enter count, total dwell millis, dwell buckets
+    private final AtomicLongArray mStateSlots = new AtomicLongArray(STATE_COUNT * SLOT_SIZE);
+    private final SparseArray<AtomicLongArray> mCustomStateSlots = new SparseArray<>();
+    // transition count, total cost nanos, cost buckets in microseconds
+    private final AtomicLongArray mTransitionSlots = new AtomicLongArray(SLOT_SIZE);
+
+    private StateMetrics(String tag) {
+        mTag = tag;
+    }
+
+    /**
+     * @return metrics of all layouts
+     */
+    @SuppressWarnings("unused")
+    public static StateMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Return metrics of the layouts sharing the tag, must be called on the main thread.
+     *
+     * @param tag metrics tag
+     * @return metrics of the tag, null if tag is null
+     */
+    @SuppressWarnings("unused")
+    public static StateMetrics forTag(String tag) {
+        if (null == tag) {
+            return null;
+        }
+        StateMetrics metrics = TAGGED.get(tag);
+        if (null == metrics) {
+            metrics = new StateMetrics(tag);
+            TAGGED.put(tag, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Return the bucket a duration is counted into.
+     *
+     * @param value duration
+     * @return bucket index
+     */
+    @SuppressWarnings("unused")
+    public static int bucketOf(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * @return metrics tag, null for the global metrics
+     */
+    @SuppressWarnings("unused")
+    public String getTag() {
+        return mTag;
+    }
+
+    /**
+     * @param state       state or custom state key
+     * @param customState true if state is a custom state key
+     * @return how many times the state was displayed
+     */
+    @SuppressWarnings("unused")
+    public long getEnterCount(int state, boolean customState) {
+        return get(state, customState, ENTER_COUNT);
+    }
+
+    /**
+     * @param state       state or custom state key
+     * @param customState true if state is a custom state key
+     * @return total milliseconds the state was displayed
+     */
+    @SuppressWarnings("unused")
+    public long getTotalDwellTime(int state, boolean customState) {
+        return get(state, customState, DWELL_TOTAL);
+    }
+
+    /**
+     * Copy the dwell time histogram of a state, in milliseconds.
+     *
+     * @param state       state or custom state key
+     * @param customState true if state is a custom state key
+     * @param out         array of at least {@link #BUCKET_COUNT} elements
+     */
+    @SuppressWarnings("unused")
+    public void getDwellHistogram(int state, boolean customState, long[] out) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            out[i] = get(state, customState, DWELL_BUCKETS + i);
+        }
+    }
+
+    /**
+     * @return how many state changes were applied
+     */
+    @SuppressWarnings("unused")
+    public long getTransitionCount() {
+        return mTransitionSlots.get(ENTER_COUNT);
+    }
+
+    /**
+     * @return total nanoseconds spent applying state changes
+     */
+    @SuppressWarnings("unused")
+    public long getTotalTransitionTime() {
+        return mTransitionSlots.get(DWELL_TOTAL);
+    }
+
+    /**
+     * Copy the histogram of the time spent applying state changes, in microseconds.
+     *
+     * @param out array of at least {@link #BUCKET_COUNT} elements
+     */
+    @SuppressWarnings("unused")
+    public void getTransitionHistogram(long[] out) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            out[i] = mTransitionSlots.get(DWELL_BUCKETS + i);
+        }
+    }
+
+    /**
+     * Reset all counters, must be called on the main thread.
+     */
+    @SuppressWarnings("unused")
+    public void reset() {
+        for (int i = 0; i < mStateSlots.length(); i++) {
+            mStateSlots.set(i, 0);
+        }
+        for (int i = 0; i < mTransitionSlots.length(); i++) {
+            mTransitionSlots.set(i, 0);
+        }
+        mCustomStateSlots.clear();
+    }
+
+    void recordEnter(int state, boolean customState) {
+        AtomicLongArray slots = slotsOf(state, customState, true);
+        if (null == slots) {
+            return;
+        }
+        slots.incrementAndGet(offsetOf(state, customState) + ENTER_COUNT);
+    }
+
+    void recordDwell(int state, boolean customState, long dwellMillis) {
+        AtomicLongArray slots = slotsOf(state, customState, true);
+        if (null == slots) {
+            return;
+        }
+        int offset = offsetOf(state, customState);
+        slots.addAndGet(offset + DWELL_TOTAL, dwellMillis);
+        slots.incrementAndGet(offset + DWELL_BUCKETS + bucketOf(dwellMillis));
+    }
+
+    void recordTransition(long costNanos) {
+        mTransitionSlots.incrementAndGet(ENTER_COUNT);
+        mTransitionSlots.addAndGet(DWELL_TOTAL, costNanos);
+        mTransitionSlots.incrementAndGet(DWELL_BUCKETS + bucketOf(costNanos / 1000));
+    }
+
+    private long get(int state, boolean customState, int index) {
+        AtomicLongArray slots = slotsOf(state, customState, false);
+        return null == slots ? 0 : slots.get(offsetOf(state, customState) + index);
+    }
+
+    private AtomicLongArray slotsOf(int state, boolean customState, boolean create) {
+        if (!customState) {
+            return state >= 0 && state < STATE_COUNT ? mStateSlots : null;
+        }
+        AtomicLongArray slots = mCustomStateSlots.get(state);
+        if (null == slots && create) {
+            slots = new AtomicLongArray(SLOT_SIZE);
+            mCustomStateSlots.put(state, slots);
+        }
+        return slots;
+    }
+
+    private static int offsetOf(int state, boolean customState) {
+        return customState ? 0 : state * SLOT_SIZE;
+    }
+}
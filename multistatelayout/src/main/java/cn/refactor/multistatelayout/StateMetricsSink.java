@@ -0,0 +1,44 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+/**
+ * Receives the samples recorded into {@link StateMetrics}, e.g. to forward
+ * them to telemetry. Called on the main thread right after the state change, keep it cheap.
+ */
+public interface StateMetricsSink {
+
+    /**
+     * Called when a state stops being displayed.
+     * @param tag         metrics tag of the layout, null if not set
+     * @param state       state or custom state key
+     * @param customState true if state is a custom state key
+     * @param dwellMillis milliseconds the state was displayed
+     */
+    void onStateDwell(String tag, int state, boolean customState, long dwellMillis);
+
+    /**
+     * Called when a state change has been applied.
+     * @param tag                 metrics tag of the layout, null if not set
+     * @param previousState       state or custom state key displayed before
+     * @param previousCustomState true if previousState is a custom state key
+     * @param state               state or custom state key displayed now
+     * @param customState         true if state is a custom state key
+     * @param costNanos           nanoseconds spent applying the change on the main thread
+     */
+    void onStateTransition(String tag, int previousState, boolean previousCustomState,
+                           int state, boolean customState, long costNanos);
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.refactor.multistatelayout;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+/**
+ * Draw-only state made of an optional icon above an optional line of text.
+ * It is painted by MultiStateLayout itself, without inflating or adding any view.
+ */
+public class StatePlaceholder {
+
+    private static final float DEFAULT_TEXT_SIZE_SP = 14;
+    private static final float DEFAULT_TEXT_GAP_DP = 8;
+    private static final int SHIMMER_BASE_COLOR = 0x00FFFFFF;
+    private static final int SHIMMER_HIGHLIGHT_COLOR = 0x80FFFFFF;
+
+    private final Drawable mIcon;
+    private final CharSequence mText;
+    private final Paint mTextPaint;
+    private final int mTextGap;
+    private final ShimmerPainter mShimmerPainter;
+    private float mTextWidth = -1;
+
+    private StatePlaceholder(Builder builder) {
+        mIcon = builder.mIcon;
+        mText = builder.mText;
+        mTextGap = builder.mTextGap;
+        mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mTextPaint.setTextSize(builder.mTextSize);
+        mTextPaint.setColor(builder.mTextColor);
+        mShimmerPainter = builder.mShimmerEnable
+                ? new ShimmerPainter(SHIMMER_BASE_COLOR, SHIMMER_HIGHLIGHT_COLOR, builder.mShimmerDuration)
+                : null;
+    }
+
+    /**
+     * @return true if the placeholder needs to be redrawn every frame
+     */
+    boolean isShimmering() {
+        return null != mShimmerPainter;
+    }
+
+    /**
+     * Draw the placeholder centered in the given bounds.
+     */
+    void draw(Canvas canvas, int left, int top, int right, int bottom) {
+        int iconWidth = null == mIcon ? 0 : mIcon.getIntrinsicWidth();
+        int iconHeight = null == mIcon ? 0 : mIcon.getIntrinsicHeight();
+        float textHeight = 0;
+        if (null != mText) {
+            if (mTextWidth < 0) {
+                mTextWidth = mTextPaint.measureText(mText, 0, mText.length());
+            }
+            textHeight = mTextPaint.descent() - mTextPaint.ascent();
+        }
+        float contentHeight = iconHeight + textHeight + (iconHeight > 0 && textHeight > 0 ? mTextGap : 0);
+        float centerX = (left + right) / 2f;
+        float y = (top + bottom - contentHeight) / 2f;
+
+        if (null != mIcon) {
+            int iconLeft = (int) (centerX - iconWidth / 2f);
+            mIcon.setBounds(iconLeft, (int) y, iconLeft + iconWidth, (int) y + iconHeight);
+            mIcon.draw(canvas);
+            y += iconHeight + (textHeight > 0 ? mTextGap : 0);
+        }
+        if (null != mText) {
+            canvas.drawText(mText, 0, mText.length(), centerX - mTextWidth / 2f, y - mTextPaint.ascent(), mTextPaint);
+        }
+        if (null != mShimmerPainter) {
+            Paint paint = mShimmerPainter.update(right - left, SystemClock.uptimeMillis());
+            canvas.save();
+            canvas.translate(left, 0);
+            canvas.drawRect(0, (top + bottom - contentHeight) / 2f, right - left, (top + bottom + contentHeight) / 2f, paint);
+            canvas.restore();
+        }
+    }
+
+    public static class Builder {
+
+        private Drawable mIcon;
+        private CharSequence mText;
+        private float mTextSize;
+        private int mTextColor = 0xFF999999;
+        private int mTextGap;
+        private boolean mShimmerEnable;
+        private int mShimmerDuration = ShimmerPainter.DEFAULT_DURATION;
+
+        /**
+         * @param context context whose display metrics convert the default 14sp text
+         *                size and 8dp gap into pixels
+         */
+        public Builder(Context context) {
+            DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+            mTextSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, DEFAULT_TEXT_SIZE_SP, metrics);
+            mTextGap = Math.round(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, DEFAULT_TEXT_GAP_DP, metrics));
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setIcon(Drawable icon) {
+            mIcon = icon;
+            return this;
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setText(CharSequence text) {
+            mText = text;
+            return this;
+        }
+
+        /**
+         * @param textSize text size in pixels
+         */
+        @SuppressWarnings("unused")
+        public Builder setTextSize(float textSize) {
+            mTextSize = textSize;
+            return this;
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setTextColor(int textColor) {
+            mTextColor = textColor;
+            return this;
+        }
+
+        /**
+         * @param textGap space between icon and text in pixels
+         */
+        @SuppressWarnings("unused")
+        public Builder setTextGap(int textGap) {
+            mTextGap = textGap;
+            return this;
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setShimmerEnable(boolean shimmerEnable) {
+            mShimmerEnable = shimmerEnable;
+            return this;
+        }
+
+        @SuppressWarnings("unused")
+        public Builder setShimmerDuration(int shimmerDuration) {
+            mShimmerDuration = shimmerDuration;
+            return this;
+        }
+
+        public StatePlaceholder build() {
+            return new StatePlaceholder(this);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import android.support.annotation.MainThread;
+import android.view.View;
+
+/**
+ * Table of the state descriptors of a {@link MultiStateLayout}. Built-in states
+ * are indexed directly, custom state keys live in an open addressing table of primitive int
+ * keys, so both are found in O(1) without boxing and go through the same transition code.
+ * Records are never removed.
+ */
+@MainThread
+final class StateRegistry {
+
+    private static final int SYSTEM_STATE_COUNT = MultiStateLayout.State.NETWORK_ERROR + 1;
+    private static final int INITIAL_CUSTOM_CAPACITY = 8;
+
+    /**
+     * Descriptor of one state.
+     */
+    static final class Record {
+
+        /** view was created from resId, so it can be released and created again */
+        static final int FLAG_INFLATED = 1;
+        /** view was inflated with a MutableContextWrapper and goes back to the pool */
+        static final int FLAG_POOLED = 1 << 1;
+        /** resId is being inflated in the background */
+        static final int FLAG_PENDING = 1 << 2;
+        /** the state has been displayed before */
+        static final int FLAG_WARM = 1 << 3;
+        /** view was handed to app code, which may have bound listeners or data to it */
+        static final int FLAG_EXPOSED = 1 << 4;
+        /** the pending async view fades in once it arrives, as requested */
+        static final int FLAG_PENDING_ANIMATE = 1 << 5;
+
+        final int key;
+        final boolean custom;
+        int resId = -1;
+        View view;
+        StatePlaceholder placeholder;
+        int flags;
+        long hiddenTime;
+
+        Record(int key, boolean custom) {
+            this.key = key;
+            this.custom = custom;
+        }
+
+        boolean hasFlag(int flag) {
+            return (flags & flag) != 0;
+        }
+    }
+
+    private final Record[] mSystemRecords = new Record[SYSTEM_STATE_COUNT];
+    private int[] mCustomKeys;
+    private Record[] mCustomRecords;
+    private int mCustomSize;
+
+    StateRegistry() {
+        for (int state = 0; state < SYSTEM_STATE_COUNT; state++) {
+            mSystemRecords[state] = new Record(state, false);
+        }
+    }
+
+    /**
+     * @param key    state or custom state key
+     * @param custom true if key is a custom state key
+     * @return record, null if there is none
+     */
+    Record get(int key, boolean custom) {
+        if (!custom) {
+            return key >= 0 && key < SYSTEM_STATE_COUNT ? mSystemRecords[key] : null;
+        }
+        if (null == mCustomRecords) {
+            return null;
+        }
+        int index = indexOf(mCustomKeys, mCustomRecords, key);
+        return mCustomRecords[index];
+    }
+
+    /**
+     * Return the record of a custom state key, creating it if needed.
+     *
+     * @param key custom state key
+     * @return record
+     */
+    Record obtainCustom(int key) {
+        if (null == mCustomRecords) {
+            mCustomKeys = new int[INITIAL_CUSTOM_CAPACITY];
+            mCustomRecords = new Record[INITIAL_CUSTOM_CAPACITY];
+        }
+        int index = indexOf(mCustomKeys, mCustomRecords, key);
+        Record record = mCustomRecords[index];
+        if (null != record) {
+            return record;
+        }
+        record = new Record(key, true);
+        // keep the load factor under 3/4 so that probing stays short
+        if ((mCustomSize + 1) * 4 > mCustomRecords.length * 3) {
+            grow();
+            index = indexOf(mCustomKeys, mCustomRecords, key);
+        }
+        mCustomKeys[index] = key;
+        mCustomRecords[index] = record;
+        mCustomSize++;
+        return record;
+    }
+
+    /**
+     * @return number of slots to iterate through {@link #recordAt(int)}
+     */
+    int slotCount() {
+        return SYSTEM_STATE_COUNT + (null == mCustomRecords ? 0 : mCustomRecords.length);
+    }
+
+    /**
+     * @param slot slot less than {@link #slotCount()}
+     * @return record of the slot, null for an empty slot
+     */
+    Record recordAt(int slot) {
+        return slot < SYSTEM_STATE_COUNT ? mSystemRecords[slot] : mCustomRecords[slot - SYSTEM_STATE_COUNT];
+    }
+
+    private void grow() {
+        int[] keys = mCustomKeys;
+        Record[] records = mCustomRecords;
+        mCustomKeys = new int[keys.length * 2];
+        mCustomRecords = new Record[records.length * 2];
+        for (int i = 0; i < records.length; i++) {
+            if (null != records[i]) {
+                int index = indexOf(mCustomKeys, mCustomRecords, keys[i]);
+                mCustomKeys[index] = keys[i];
+                mCustomRecords[index] = records[i];
+            }
+        }
+    }
+
+    /**
+     * Linear probing, returns the slot of key or the empty slot it belongs to.
+     */
+    private static int indexOf(int[] keys, Record[] records, int key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (null != records[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import android.content.res.Resources;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * android.os.Trace sections around inflation, listener dispatch and animation
+ * start, labelled with the state and layout resource name. Enabled through
+ * MultiStateConfiguration.Builder.setTraceEnable, callers check {@link #isEnabled()} first
+ * so that no label is built while tracing is off. Requires API 18, no-op below.
+ */
+final class StateTrace {
+
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+    private static final String[] STATE_NAMES = {"CONTENT", "EMPTY", "LOADING", "ERROR", "NETWORK_ERROR"};
+
+    private static volatile boolean sEnabled;
+
+    private StateTrace() {
+    }
+
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Begin a section named "MultiStateLayout#stage state res", must be ended on the same thread.
+     *
+     * @param stage       what is traced, e.g. inflate
+     * @param state       state or custom state key
+     * @param customState true if state is a custom state key
+     * @param res         resources to resolve resId, may be null
+     * @param resId       layout resource id, -1 if none
+     */
+    static void beginSection(String stage, int state, boolean customState, Resources res, int resId) {
+        StringBuilder name = new StringBuilder("MultiStateLayout#").append(stage).append(' ');
+        if (customState) {
+            name.append("custom:").append(state);
+        } else if (state >= 0 && state < STATE_NAMES.length) {
+            name.append(STATE_NAMES[state]);
+        } else {
+            name.append(state);
+        }
+        if (null != res && resId > 0) {
+            name.append(' ');
+            try {
+                name.append(res.getResourceEntryName(resId));
+            } catch (Resources.NotFoundException e) {
+                name.append(Integer.toHexString(resId));
+            }
+        }
+        beginSection(name.length() > MAX_SECTION_NAME_LENGTH ? name.substring(0, MAX_SECTION_NAME_LENGTH) : name.toString());
+    }
+
+    static void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+    static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+}
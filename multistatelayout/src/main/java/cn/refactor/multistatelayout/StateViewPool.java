@@ -0,0 +1,217 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.refactor.multistatelayout;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.support.annotation.MainThread;
+import android.util.SparseArray;
+import android.view.View;
+
+import java.util.ArrayDeque;
+
+/**
+ * Process-wide pool of detached state views keyed by layout resource id.
+ * Each resource id keeps at most {@link #getCapacityPerType()} views, and when the pool
+ * holds more than {@link #getMaxSize()} views the least recently used type is evicted first.
+ * Views are only pooled when inflated with a {@link MutableContextWrapper}, so that they
+ * can be re-based onto the context of the next owner instead of leaking the previous one.
+ * Only the transition state set by MultiStateLayout is reset on release, so callers must
+ * not release views carrying listeners or data bound by their owner.
+ * While it holds views, the pool listens to memory pressure and drops them all.
+ */
+@MainThread
+final class StateViewPool {
+
+    static final int DEFAULT_CAPACITY_PER_TYPE = 2;
+    static final int DEFAULT_MAX_SIZE = 16;
+
+    private static final StateViewPool sInstance = new StateViewPool();
+
+    private final SparseArray<ScrapList> mScrap = new SparseArray<>();
+    private int mCapacityPerType = DEFAULT_CAPACITY_PER_TYPE;
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private int mSize;
+    private long mAccessClock;
+    private Context mCallbacksContext;
+
+    private static class ScrapList {
+        final ArrayDeque<View> views = new ArrayDeque<>();
+        long lastAccess;
+    }
+
+    private StateViewPool() {
+    }
+
+    static StateViewPool getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Set pool bounds, trimming the pool if it already holds more views.
+     *
+     * @param capacityPerType max views kept per layout resource id
+     * @param maxSize         max views kept in total
+     */
+    void setCapacity(int capacityPerType, int maxSize) {
+        mCapacityPerType = Math.max(0, capacityPerType);
+        mMaxSize = Math.max(0, maxSize);
+        for (int i = mScrap.size() - 1; i >= 0; i--) {
+            ArrayDeque<View> views = mScrap.valueAt(i).views;
+            while (views.size() > mCapacityPerType) {
+                views.pollLast();
+                mSize--;
+            }
+        }
+        trimToSize(mMaxSize);
+    }
+
+    int getCapacityPerType() {
+        return mCapacityPerType;
+    }
+
+    int getMaxSize() {
+        return mMaxSize;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Take a pooled view of resId and re-base it onto context.
+     *
+     * @param resId   layout resource id
+     * @param context context of the new owner
+     * @return view or null if none is pooled
+     */
+    View acquire(int resId, Context context) {
+        ScrapList scrap = mScrap.get(resId);
+        if (null == scrap || scrap.views.isEmpty()) {
+            return null;
+        }
+        View view = scrap.views.pollFirst();
+        scrap.lastAccess = ++mAccessClock;
+        mSize--;
+        ((MutableContextWrapper) view.getContext()).setBaseContext(context);
+        unregisterCallbacksIfEmpty();
+        return view;
+    }
+
+    /**
+     * Put a detached view of resId back into the pool.
+     *
+     * @param resId layout resource id
+     * @param view  view without parent, inflated with a MutableContextWrapper
+     * @return true if pooled, false if dropped
+     */
+    boolean release(int resId, View view) {
+        if (mCapacityPerType == 0 || mMaxSize == 0 || !(view.getContext() instanceof MutableContextWrapper)) {
+            return false;
+        }
+        ScrapList scrap = mScrap.get(resId);
+        if (null == scrap) {
+            scrap = new ScrapList();
+            mScrap.put(resId, scrap);
+        }
+        if (scrap.views.size() >= mCapacityPerType) {
+            return false;
+        }
+
+        MutableContextWrapper context = (MutableContextWrapper) view.getContext();
+        context.setBaseContext(context.getApplicationContext());
+        view.setAlpha(1.0f);
+        view.setVisibility(View.VISIBLE);
+        // cached transition state belongs to the previous owner
+        MultiStateLayout.clearTransitionTags(view);
+
+        scrap.views.offerFirst(view);
+        scrap.lastAccess = ++mAccessClock;
+        mSize++;
+        if (null == mCallbacksContext) {
+            mCallbacksContext = context.getApplicationContext();
+            mCallbacksContext.registerComponentCallbacks(mComponentCallbacks);
+        }
+        trimToSize(mMaxSize);
+        return true;
+    }
+
+    /**
+     * Drop every pooled view.
+     */
+    void clear() {
+        mScrap.clear();
+        mSize = 0;
+        unregisterCallbacksIfEmpty();
+    }
+
+    /**
+     * Evict views of the least recently used types until size fits.
+     *
+     * @param maxSize target size
+     */
+    void trimToSize(int maxSize) {
+        while (mSize > maxSize) {
+            ScrapList eldest = null;
+            for (int i = 0; i < mScrap.size(); i++) {
+                ScrapList scrap = mScrap.valueAt(i);
+                if (!scrap.views.isEmpty() && (null == eldest || scrap.lastAccess < eldest.lastAccess)) {
+                    eldest = scrap;
+                }
+            }
+            if (null == eldest) {
+                mSize = 0;
+                break;
+            }
+            eldest.views.pollLast();
+            mSize--;
+        }
+        unregisterCallbacksIfEmpty();
+    }
+
+    /**
+     * Memory pressure callbacks are only registered while views are pooled, so an
+     * empty pool holds no application callback.
+     */
+    private void unregisterCallbacksIfEmpty() {
+        if (mSize == 0 && null != mCallbacksContext) {
+            mCallbacksContext.unregisterComponentCallbacks(mComponentCallbacks);
+            mCallbacksContext = null;
+        }
+    }
+
+    private final ComponentCallbacks2 mComponentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                clear();
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            clear();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.refactor.multistatelayout;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.FrameLayout;
+
+/**
+ * Inflates the common state layouts into the shared state view pool
+ * while the main thread is idle, one view per idle pass. Stops when the system
+ * reports memory pressure, when the pool drops its views as well. Layouts are inflated with the inflater and
+ * theme of the context it was started with, which is released once it has finished.
+ */
+public final class StateViewPrewarmer implements MessageQueue.IdleHandler, ComponentCallbacks2 {
+
+    private final Context mAppContext;
+    private Context mContext;
+    private LayoutInflater mInflater;
+    private FrameLayout mParent;
+    private final int[] mResIds = new int[MultiStateLayout.State.NETWORK_ERROR + 1];
+    private final int[] mRemaining = new int[MultiStateLayout.State.NETWORK_ERROR + 1];
+    private boolean mFinished;
+
+    StateViewPrewarmer(Context context, MultiStateConfiguration.Builder builder) {
+        mAppContext = context.getApplicationContext();
+        mContext = context;
+        mInflater = LayoutInflater.from(context);
+        mParent = new FrameLayout(context);
+        for (int state = MultiStateLayout.State.EMPTY; state <= MultiStateLayout.State.NETWORK_ERROR; state++) {
+            mResIds[state] = builder.getCommonLayout(state);
+            mRemaining[state] = mResIds[state] > -1 ? builder.getPrewarmCount(state) : 0;
+        }
+    }
+
+    /**
+     * Start prewarming, must be called on the main thread.
+     */
+    void start() {
+        mAppContext.registerComponentCallbacks(this);
+        Looper.myQueue().addIdleHandler(this);
+    }
+
+    /**
+     * Stop prewarming. Views already pooled are kept.
+     */
+    @SuppressWarnings("unused")
+    public void cancel() {
+        if (mFinished) {
+            return;
+        }
+        mFinished = true;
+        Looper.myQueue().removeIdleHandler(this);
+        mAppContext.unregisterComponentCallbacks(this);
+        // the context may be an Activity, don't hold on to it
+        mContext = null;
+        mInflater = null;
+        mParent = null;
+    }
+
+    /**
+     * @return true once every requested view was inflated or prewarming was cancelled
+     */
+    @SuppressWarnings("unused")
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (mFinished) {
+            return false;
+        }
+        for (int state = MultiStateLayout.State.EMPTY; state <= MultiStateLayout.State.NETWORK_ERROR; state++) {
+            if (mRemaining[state] <= 0) {
+                continue;
+            }
+            boolean trace = StateTrace.isEnabled();
+            if (trace) {
+                StateTrace.beginSection("prewarm", state, false, mContext.getResources(), mResIds[state]);
+            }
+            View view;
+            try {
+                view = mInflater.cloneInContext(new MutableContextWrapper(mContext))
+                                .inflate(mResIds[state], mParent, false);
+            } finally {
+                if (trace) {
+                    StateTrace.endSection();
+                }
+            }
+            // the pool is full for this layout, no point in inflating more
+            mRemaining[state] = StateViewPool.getInstance().release(mResIds[state], view) ? mRemaining[state] - 1 : 0;
+            return true;
+        }
+        cancel();
+        return false;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // the pool drops its views on its own
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            cancel();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        cancel();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
@@ -27,6 +27,9 @@ import android.view.View;
 public interface TransitionAnimatorLoader {
 
     /**
+     * Called once per target view. The returned animator is cached on the view
+     * and restarted for every later transition to it, so it must not depend on
+     * state captured at creation time. Return null to use the default alpha animator.
      *
      * @param targetView  target view
      * @return animator
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import android.app.Activity;
+import android.os.Build;
+import android.view.View;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cost of state transitions on the JVM, cold and warm, with and without animation,
+ * for custom states and listener dispatch, written to the TransitionBenchmark report.
+ * Assertions only guard the behaviour being measured, never timings or allocated bytes,
+ * so runs stay stable across machines and JVMs.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O)
+public class MultiStateLayoutBenchmarkTest {
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+    private static final int CUSTOM_STATE_KEY = 100;
+    private static final int[] STATES = {
+            MultiStateLayout.State.EMPTY,
+            MultiStateLayout.State.LOADING,
+            MultiStateLayout.State.ERROR,
+            MultiStateLayout.State.NETWORK_ERROR
+    };
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        MultiStateLayout.setConfiguration(null);
+        mActivity = Robolectric.setupActivity(Activity.class);
+    }
+
+    @After
+    public void tearDown() {
+        StateViewPool.getInstance().clear();
+    }
+
+    @Test
+    public void coldSetState() {
+        for (final int state : STATES) {
+            final MultiStateLayout[] layouts = new MultiStateLayout[WARMUP + ITERATIONS];
+            TransitionBenchmark.measure("cold setState(" + state + ")", WARMUP, ITERATIONS,
+                    new TransitionBenchmark.Step() {
+                        @Override
+                        public void run(int iteration) {
+                            layouts[iteration] = newLayout(false);
+                        }
+                    },
+                    new TransitionBenchmark.Step() {
+                        @Override
+                        public void run(int iteration) {
+                            layouts[iteration].setState(state);
+                        }
+                    });
+            for (MultiStateLayout layout : layouts) {
+                assertEquals(state, layout.getState());
+                assertNotNull(stateViewOf(layout, state));
+            }
+        }
+    }
+
+    @Test
+    public void warmSetState() {
+        for (boolean animEnable : new boolean[]{false, true}) {
+            for (final int state : STATES) {
+                final MultiStateLayout layout = newLayout(animEnable);
+                layout.setState(state);
+                final View stateView = stateViewOf(layout, state);
+                TransitionBenchmark.measure("warm setState(" + state + ") anim " + animEnable, WARMUP, ITERATIONS,
+                        new TransitionBenchmark.Step() {
+                            @Override
+                            public void run(int iteration) {
+                                layout.setState(iteration % 2 == 0 ? MultiStateLayout.State.CONTENT : state);
+                            }
+                        });
+                layout.setState(state);
+                // warm transitions must reuse the state view
+                assertSame(stateView, stateViewOf(layout, state));
+                assertEquals(View.VISIBLE, stateView.getVisibility());
+            }
+        }
+    }
+
+    @Test
+    public void warmDoesNotInflate() {
+        final MultiStateLayout[] layouts = new MultiStateLayout[WARMUP + ITERATIONS];
+        TransitionBenchmark.measure("cold setState(EMPTY)", WARMUP, ITERATIONS,
+                new TransitionBenchmark.Step() {
+                    @Override
+                    public void run(int iteration) {
+                        layouts[iteration] = newLayout(false);
+                    }
+                },
+                new TransitionBenchmark.Step() {
+                    @Override
+                    public void run(int iteration) {
+                        layouts[iteration].setState(MultiStateLayout.State.EMPTY);
+                    }
+                });
+        final MultiStateLayout layout = newLayout(false);
+        layout.setState(MultiStateLayout.State.EMPTY);
+        final View emptyView = layout.getEmptyView();
+        final int childCount = layout.getChildCount();
+        TransitionBenchmark.measure("warm setState(EMPTY)", WARMUP, ITERATIONS,
+                new TransitionBenchmark.Step() {
+                    @Override
+                    public void run(int iteration) {
+                        layout.setState(iteration % 2 == 0 ? MultiStateLayout.State.CONTENT : MultiStateLayout.State.EMPTY);
+                    }
+                });
+        // every cold layout inflated its own view, the warm one kept reusing the same
+        for (int i = 1; i < layouts.length; i++) {
+            assertNotSame(layouts[0].getEmptyView(), layouts[i].getEmptyView());
+        }
+        layout.setState(MultiStateLayout.State.EMPTY);
+        assertSame(emptyView, layout.getEmptyView());
+        assertEquals(childCount, layout.getChildCount());
+    }
+
+    @Test
+    public void setCustomState() {
+        final MultiStateLayout layout = newLayout(false);
+        View customView = new TextView(mActivity);
+        layout.putCustomStateView(CUSTOM_STATE_KEY, customView);
+        TransitionBenchmark.measure("setCustomState", WARMUP, ITERATIONS,
+                new TransitionBenchmark.Step() {
+                    @Override
+                    public void run(int iteration) {
+                        if (iteration % 2 == 0) {
+                            layout.setCustomState(CUSTOM_STATE_KEY);
+                        } else {
+                            layout.setState(MultiStateLayout.State.CONTENT);
+                        }
+                    }
+                });
+        layout.setCustomState(CUSTOM_STATE_KEY);
+        assertTrue(layout.isCustomizeState());
+        assertEquals(CUSTOM_STATE_KEY, layout.getState());
+        assertEquals(View.VISIBLE, customView.getVisibility());
+    }
+
+    @Test
+    public void listenerDispatch() {
+        for (int listenerCount : new int[]{1, 8, 32}) {
+            final MultiStateLayout layout = newLayout(false);
+            layout.setState(MultiStateLayout.State.EMPTY);
+            final int[] calls = new int[1];
+            for (int i = 0; i < listenerCount; i++) {
+                layout.addOnStateChangedListener(new OnStateChangedListener() {
+                    @Override
+                    public void onChanged(int state) {
+                        calls[0]++;
+                    }
+                });
+            }
+            TransitionBenchmark.measure("dispatch to " + listenerCount + " listeners", WARMUP, ITERATIONS,
+                    new TransitionBenchmark.Step() {
+                        @Override
+                        public void run(int iteration) {
+                            layout.setState(iteration % 2 == 0 ? MultiStateLayout.State.CONTENT : MultiStateLayout.State.EMPTY);
+                        }
+                    });
+            assertEquals(listenerCount * (WARMUP + ITERATIONS), calls[0]);
+        }
+    }
+
+    @Test
+    public void listenerRemovingItselfDuringDispatch() {
+        MultiStateLayout layout = newLayout(false);
+        final int[] calls = new int[2];
+        layout.addOnStateChangedListener(new OnStateChangedListener() {
+            @Override
+            public void onChanged(int state) {
+                calls[0]++;
+            }
+        });
+        final MultiStateLayout target = layout;
+        layout.addOnStateChangedListener(new OnStateChangedListener() {
+            @Override
+            public void onChanged(int state) {
+                calls[1]++;
+                target.removeOnStateChangedListener(this);
+            }
+        });
+        layout.setState(MultiStateLayout.State.EMPTY);
+        layout.setState(MultiStateLayout.State.CONTENT);
+        assertEquals(2, calls[0]);
+        assertEquals(1, calls[1]);
+    }
+
+    private static View stateViewOf(MultiStateLayout layout, int state) {
+        switch (state) {
+            case MultiStateLayout.State.EMPTY:
+                return layout.getEmptyView();
+            case MultiStateLayout.State.LOADING:
+                return layout.getLoadingView();
+            case MultiStateLayout.State.ERROR:
+                return layout.getErrorView();
+            case MultiStateLayout.State.NETWORK_ERROR:
+                return layout.getNetworkErrorView();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Create a layout with a content view and framework layouts as state layouts,
+     * measured and laid out at a fixed size.
+     */
+    private MultiStateLayout newLayout(boolean animEnable) {
+        MultiStateLayout layout = new MultiStateLayout(mActivity);
+        layout.addView(new TextView(mActivity));
+        layout.onFinishInflate();
+        layout.setEmptyView(android.R.layout.simple_list_item_1);
+        layout.setLoadingView(android.R.layout.simple_list_item_2);
+        layout.setErrorView(android.R.layout.simple_list_item_checked);
+        layout.setNetworkErrorView(android.R.layout.simple_list_item_single_choice);
+        layout.setAnimEnable(animEnable);
+        layout.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, 1080, 1920);
+        return layout;
+    }
+}
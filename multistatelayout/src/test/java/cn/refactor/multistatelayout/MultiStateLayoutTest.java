@@ -0,0 +1,473 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.MutableContextWrapper;
+import android.os.Build;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLog;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Behaviour of MultiStateLayout that is not covered by the benchmarks.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O)
+public class MultiStateLayoutTest {
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        MultiStateLayout.setConfiguration(null);
+        mActivity = Robolectric.setupActivity(Activity.class);
+    }
+
+    @After
+    public void tearDown() {
+        MultiStateLayout.setConfiguration(null);
+        AllocationTracker.setCounter(null);
+        StateViewPool.getInstance().clear();
+    }
+
+    @Test
+    public void exposedViewIsNotPooledWithoutRecycledListener() {
+        MultiStateLayout layout = newLayout();
+        layout.setStateViewPoolEnable(true);
+        layout.setOnStateViewCreatedListener(new OnStateViewCreatedListener() {
+            @Override
+            public void onViewCreated(View view, int state) {
+                view.setOnClickListener(new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        mActivity.finish();
+                    }
+                });
+            }
+        });
+        layout.setState(MultiStateLayout.State.EMPTY);
+        View emptyView = layout.getEmptyView();
+
+        layout.recycle();
+
+        assertEquals(0, StateViewPool.getInstance().size());
+        assertSame(layout, emptyView.getParent());
+    }
+
+    @Test
+    public void accessedViewIsNotPooledWithoutRecycledListener() {
+        MultiStateLayout layout = newLayout();
+        layout.setStateViewPoolEnable(true);
+        layout.setState(MultiStateLayout.State.EMPTY);
+        ((TextView) layout.getEmptyView()).setText("owner data");
+
+        layout.recycle();
+
+        assertEquals(0, StateViewPool.getInstance().size());
+    }
+
+    @Test
+    public void recycledViewKeepsNoListenerOrActivity() {
+        MultiStateLayout layout = newLayout();
+        layout.setStateViewPoolEnable(true);
+        layout.setOnStateViewCreatedListener(new OnStateViewCreatedListener() {
+            @Override
+            public void onViewCreated(View view, int state) {
+                view.setOnClickListener(new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        mActivity.finish();
+                    }
+                });
+            }
+        });
+        layout.setOnStateViewRecycledListener(new OnStateViewRecycledListener() {
+            @Override
+            public void onStateViewRecycled(View view, int state) {
+                view.setOnClickListener(null);
+            }
+        });
+        layout.setState(MultiStateLayout.State.EMPTY);
+        View emptyView = layout.getEmptyView();
+
+        layout.recycle();
+
+        assertEquals(1, StateViewPool.getInstance().size());
+        assertFalse(emptyView.hasOnClickListeners());
+        assertSame(mActivity.getApplicationContext(), ((MutableContextWrapper) emptyView.getContext()).getBaseContext());
+    }
+
+    @Test
+    public void untouchedViewIsPooled() {
+        MultiStateLayout layout = newLayout();
+        layout.setStateViewPoolEnable(true);
+        layout.setState(MultiStateLayout.State.EMPTY);
+
+        layout.recycle();
+
+        assertEquals(1, StateViewPool.getInstance().size());
+    }
+
+    @Test
+    public void poolIsDroppedOnMemoryPressure() {
+        MultiStateLayout layout = newLayout();
+        layout.setStateViewPoolEnable(true);
+        layout.setState(MultiStateLayout.State.EMPTY);
+        layout.recycle();
+        assertEquals(1, StateViewPool.getInstance().size());
+
+        // no prewarmer and no layout listening, the pool reacts on its own
+        mActivity.getApplication().onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertEquals(0, StateViewPool.getInstance().size());
+    }
+
+    @Test
+    public void releaseTtlKeepsViewsChangedByTheApp() {
+        MultiStateLayout layout = newLayout();
+        mActivity.setContentView(layout);
+        layout.setStateViewReleaseTtl(0);
+        layout.setState(MultiStateLayout.State.LOADING);
+        layout.setState(MultiStateLayout.State.EMPTY);
+        View emptyView = layout.getEmptyView();
+        ((TextView) emptyView).setText("owner data");
+        layout.setState(MultiStateLayout.State.CONTENT);
+
+        mActivity.getApplication().onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertSame(emptyView, layout.getEmptyView());
+        assertSame(layout, emptyView.getParent());
+        // only the content and the empty view are left, the untouched loading view was released
+        assertEquals(2, layout.getChildCount());
+    }
+
+    @Test
+    public void listenerSetLaterIsToldAboutExistingViews() {
+        MultiStateLayout layout = newLayout();
+        // like the state attribute, applied while inflating before any listener exists
+        layout.bindState(MultiStateLayout.State.EMPTY);
+        final View[] created = new View[1];
+        final int[] createdState = {-1};
+
+        layout.setOnStateViewCreatedListener(new OnStateViewCreatedListener() {
+            @Override
+            public void onViewCreated(View view, int state) {
+                created[0] = view;
+                createdState[0] = state;
+            }
+        });
+
+        assertSame(layout.getEmptyView(), created[0]);
+        assertEquals(MultiStateLayout.State.EMPTY, createdState[0]);
+    }
+
+    @Test
+    public void warmAnimatedTransitionPassesStrictAllocationCheck() {
+        final int[] sinkCalls = new int[1];
+        MultiStateLayout.setConfiguration(new MultiStateConfiguration.Builder()
+                .setAnimEnable(true)
+                .setCrossfadeEnable(true)
+                .setMetricsEnable(true)
+                .setMetricsSink(new StateMetricsSink() {
+                    @Override
+                    public void onStateDwell(String tag, int state, boolean customState, long dwellMillis) {
+                        sinkCalls[0]++;
+                    }
+
+                    @Override
+                    public void onStateTransition(String tag, int previousState, boolean previousCustomState,
+                                                  int state, boolean customState, long costNanos) {
+                        sinkCalls[0]++;
+                    }
+                })
+                .setAllocationPenalty(MultiStateLayout.AllocationPenalty.THROW));
+        MultiStateLayout layout = newLayout();
+        // attached, so that the state views fade out as well as in
+        mActivity.setContentView(layout);
+        layout.setState(MultiStateLayout.State.EMPTY);
+        layout.setState(MultiStateLayout.State.CONTENT);
+
+        // the framework animator start does not count against the warm transitions
+        for (int i = 0; i < 10; i++) {
+            layout.setState(MultiStateLayout.State.EMPTY);
+            layout.setState(MultiStateLayout.State.CONTENT);
+        }
+
+        assertEquals(MultiStateLayout.State.CONTENT, layout.getState());
+        assertTrue(sinkCalls[0] > 0);
+    }
+
+    @Test
+    public void allocatingListenerFailsWarmTransition() {
+        final FakeAllocationCounter counter = new FakeAllocationCounter();
+        AllocationTracker.setCounter(counter);
+        MultiStateLayout.setConfiguration(new MultiStateConfiguration.Builder()
+                .setAllocationPenalty(MultiStateLayout.AllocationPenalty.THROW));
+        MultiStateLayout layout = newLayout();
+        OnStateChangedListener listener = new OnStateChangedListener() {
+            @Override
+            public void onChanged(int state) {
+                counter.count += 2;
+            }
+        };
+        layout.addOnStateChangedListener(listener);
+        // cold transitions are not checked
+        layout.setState(MultiStateLayout.State.EMPTY);
+        layout.setState(MultiStateLayout.State.CONTENT);
+
+        try {
+            layout.setState(MultiStateLayout.State.EMPTY);
+            fail("warm transition with an allocating listener passed");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith(listener.getClass().getName() + " allocated 2 objects"));
+        }
+    }
+
+    @Test
+    public void allocatingMetricsSinkFailsWarmTransition() {
+        final FakeAllocationCounter counter = new FakeAllocationCounter();
+        AllocationTracker.setCounter(counter);
+        StateMetricsSink sink = new StateMetricsSink() {
+            @Override
+            public void onStateDwell(String tag, int state, boolean customState, long dwellMillis) {
+            }
+
+            @Override
+            public void onStateTransition(String tag, int previousState, boolean previousCustomState,
+                                          int state, boolean customState, long costNanos) {
+                counter.count++;
+            }
+        };
+        MultiStateLayout.setConfiguration(new MultiStateConfiguration.Builder()
+                .setMetricsEnable(true)
+                .setMetricsSink(sink)
+                .setAllocationPenalty(MultiStateLayout.AllocationPenalty.THROW));
+        MultiStateLayout layout = newLayout();
+        layout.setState(MultiStateLayout.State.EMPTY);
+        layout.setState(MultiStateLayout.State.CONTENT);
+
+        try {
+            layout.setState(MultiStateLayout.State.EMPTY);
+            fail("warm transition with an allocating metrics sink passed");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith(sink.getClass().getName() + " allocated 1 objects"));
+        }
+    }
+
+    @Test
+    public void listenerAllocationsAreNotChargedToTheLayout() {
+        final FakeAllocationCounter counter = new FakeAllocationCounter();
+        AllocationTracker.setCounter(counter);
+        MultiStateLayout.setConfiguration(new MultiStateConfiguration.Builder()
+                .setAllocationPenalty(MultiStateLayout.AllocationPenalty.LOG));
+        MultiStateLayout layout = newLayout();
+        OnStateChangedListener listener = new OnStateChangedListener() {
+            @Override
+            public void onChanged(int state) {
+                counter.count += 2;
+            }
+        };
+        layout.addOnStateChangedListener(listener);
+        layout.setState(MultiStateLayout.State.EMPTY);
+        layout.setState(MultiStateLayout.State.CONTENT);
+        ShadowLog.reset();
+
+        layout.setState(MultiStateLayout.State.EMPTY);
+
+        // only the listener is reported, the layout itself allocated nothing
+        List<ShadowLog.LogItem> logs = ShadowLog.getLogsForTag("MultiStateLayout");
+        assertEquals(1, logs.size());
+        assertTrue(logs.get(0).msg.startsWith(listener.getClass().getName() + " allocated 2 objects"));
+    }
+
+    @Test
+    public void detachAndReattachRecordsOneDwellSample() {
+        final int[] emptyDwellSamples = new int[1];
+        MultiStateLayout.setConfiguration(new MultiStateConfiguration.Builder()
+                .setMetricsEnable(true)
+                .setMetricsSink(new StateMetricsSink() {
+                    @Override
+                    public void onStateDwell(String tag, int state, boolean customState, long dwellMillis) {
+                        if (state == MultiStateLayout.State.EMPTY) {
+                            emptyDwellSamples[0]++;
+                        }
+                    }
+
+                    @Override
+                    public void onStateTransition(String tag, int previousState, boolean previousCustomState,
+                                                  int state, boolean customState, long costNanos) {
+                    }
+                }));
+        MultiStateLayout layout = newLayout();
+        FrameLayout parent = new FrameLayout(mActivity);
+        mActivity.setContentView(parent);
+        parent.addView(layout);
+        layout.setState(MultiStateLayout.State.EMPTY);
+
+        // e.g. a page of a ViewPager scrolled away and back
+        parent.removeView(layout);
+        parent.addView(layout);
+        assertEquals(0, emptyDwellSamples[0]);
+
+        layout.setState(MultiStateLayout.State.CONTENT);
+        assertEquals(1, emptyDwellSamples[0]);
+    }
+
+    @Test
+    public void putCustomStateViewIsShownBySetCustomState() {
+        MultiStateLayout layout = newLayout();
+        View first = new TextView(mActivity);
+        View second = new TextView(mActivity);
+        layout.putCustomStateView(100, first);
+        layout.putCustomStateView(-100, second);
+        assertEquals(View.GONE, first.getVisibility());
+        assertSame(first, layout.findCustomStateViewByKey(100));
+        assertSame(second, layout.findCustomStateViewByKey(-100));
+
+        layout.setCustomState(100);
+        assertTrue(layout.isCustomizeState());
+        assertEquals(100, layout.getState());
+        assertEquals(View.VISIBLE, first.getVisibility());
+
+        layout.setCustomState(-100);
+        assertEquals(-100, layout.getState());
+        assertEquals(View.GONE, first.getVisibility());
+        assertEquals(View.VISIBLE, second.getVisibility());
+
+        layout.setState(MultiStateLayout.State.EMPTY);
+        assertFalse(layout.isCustomizeState());
+        assertEquals(MultiStateLayout.State.EMPTY, layout.getState());
+        assertEquals(View.GONE, second.getVisibility());
+    }
+
+    @Test
+    public void putCustomStateViewReplacesPreviousView() {
+        MultiStateLayout layout = newLayout();
+        View previous = new TextView(mActivity);
+        View replacement = new TextView(mActivity);
+        layout.putCustomStateView(100, previous);
+        layout.setCustomState(100);
+
+        layout.putCustomStateView(100, replacement);
+
+        assertNull(previous.getParent());
+        assertSame(replacement, layout.findCustomStateViewByKey(100));
+        assertNull(layout.findCustomStateViewByKey(101));
+    }
+
+    @Test
+    public void putCustomStateLayoutInflatesOnFirstDisplay() {
+        MultiStateLayout layout = newLayout();
+        final int[] created = new int[1];
+        layout.setOnStateViewCreatedListener(new OnStateViewCreatedListener() {
+            @Override
+            public void onViewCreated(View view, int state) {
+                assertEquals(100, state);
+                created[0]++;
+            }
+        });
+        layout.putCustomStateLayout(100, android.R.layout.simple_list_item_1);
+        assertNull(layout.findCustomStateViewByKey(100));
+        assertEquals(0, created[0]);
+
+        layout.setCustomState(100);
+        layout.setState(MultiStateLayout.State.CONTENT);
+        layout.setCustomState(100);
+
+        View customView = layout.findCustomStateViewByKey(100);
+        assertNotNull(customView);
+        assertEquals(View.VISIBLE, customView.getVisibility());
+        assertEquals(1, created[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putCustomStateLayoutRejectsBuiltInStateKey() {
+        newLayout().putCustomStateLayout(MultiStateLayout.State.EMPTY, android.R.layout.simple_list_item_1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putCustomStateViewRejectsBuiltInStateKey() {
+        newLayout().putCustomStateView(MultiStateLayout.State.CONTENT, new TextView(mActivity));
+    }
+
+    @Test
+    public void layoutBuiltInCodeMeasuresAndLaysOutItsChildren() {
+        // no onFinishInflate, as for a layout that is not inflated from XML
+        MultiStateLayout layout = new MultiStateLayout(mActivity);
+        View content = new View(mActivity);
+        View extra = new View(mActivity);
+        layout.addView(content, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT,
+                FrameLayout.LayoutParams.MATCH_PARENT));
+        layout.addView(extra, new FrameLayout.LayoutParams(100, 50));
+        layout.setEmptyView(android.R.layout.simple_list_item_1);
+        layout.setState(MultiStateLayout.State.EMPTY);
+        layout.setState(MultiStateLayout.State.CONTENT);
+
+        layout.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, 1080, 1920);
+
+        assertEquals(1080, content.getWidth());
+        assertEquals(1920, content.getHeight());
+        assertEquals(100, extra.getWidth());
+        assertEquals(50, extra.getHeight());
+    }
+
+    private static final class FakeAllocationCounter implements AllocationTracker.Counter {
+
+        int count;
+
+        @Override
+        public int count() {
+            return count;
+        }
+    }
+
+    /**
+     * Create a layout with a content view and framework layouts as state layouts.
+     */
+    private MultiStateLayout newLayout() {
+        MultiStateLayout layout = new MultiStateLayout(mActivity);
+        layout.addView(new TextView(mActivity));
+        layout.onFinishInflate();
+        layout.setEmptyView(android.R.layout.simple_list_item_1);
+        layout.setLoadingView(android.R.layout.simple_list_item_2);
+        layout.setErrorView(android.R.layout.simple_list_item_checked);
+        layout.setNetworkErrorView(android.R.layout.simple_list_item_single_choice);
+        return layout;
+    }
+}
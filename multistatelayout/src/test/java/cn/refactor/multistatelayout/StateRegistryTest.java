@@ -0,0 +1,181 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lookup, probing and growth of the StateRegistry table.
+ */
+public class StateRegistryTest {
+
+    private static final int SYSTEM_STATE_COUNT = MultiStateLayout.State.NETWORK_ERROR + 1;
+    private static final int INITIAL_CUSTOM_CAPACITY = 8;
+
+    @Test
+    public void systemStatesAreIndexedDirectly() {
+        StateRegistry registry = new StateRegistry();
+        for (int state = 0; state < SYSTEM_STATE_COUNT; state++) {
+            StateRegistry.Record record = registry.get(state, false);
+            assertNotNull(record);
+            assertEquals(state, record.key);
+            assertFalse(record.custom);
+            assertSame(record, registry.recordAt(state));
+        }
+        assertNull(registry.get(-1, false));
+        assertNull(registry.get(SYSTEM_STATE_COUNT, false));
+        assertEquals(SYSTEM_STATE_COUNT, registry.slotCount());
+    }
+
+    @Test
+    public void getDoesNotCreateCustomRecords() {
+        StateRegistry registry = new StateRegistry();
+        assertNull(registry.get(100, true));
+        assertEquals(SYSTEM_STATE_COUNT, registry.slotCount());
+
+        StateRegistry.Record record = registry.obtainCustom(100);
+        assertSame(record, registry.get(100, true));
+        assertSame(record, registry.obtainCustom(100));
+        assertNull(registry.get(101, true));
+        assertEquals(SYSTEM_STATE_COUNT + INITIAL_CUSTOM_CAPACITY, registry.slotCount());
+    }
+
+    @Test
+    public void customKeysDoNotShadowSystemStates() {
+        StateRegistry registry = new StateRegistry();
+        StateRegistry.Record system = registry.get(MultiStateLayout.State.EMPTY, false);
+        StateRegistry.Record custom = registry.obtainCustom(MultiStateLayout.State.EMPTY);
+        assertNotSame(system, custom);
+        assertTrue(custom.custom);
+        assertSame(system, registry.get(MultiStateLayout.State.EMPTY, false));
+        assertSame(custom, registry.get(MultiStateLayout.State.EMPTY, true));
+    }
+
+    @Test
+    public void negativeAndZeroKeys() {
+        StateRegistry registry = new StateRegistry();
+        int[] keys = {0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        StateRegistry.Record[] records = new StateRegistry.Record[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            records[i] = registry.obtainCustom(keys[i]);
+            assertEquals(keys[i], records[i].key);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            assertSame(records[i], registry.get(keys[i], true));
+        }
+        assertNull(registry.get(1, true));
+    }
+
+    @Test
+    public void collidingKeyProbesToTheNextSlot() {
+        int key = 100;
+        int slot = customSlotOf(key);
+        int collidingKey = key + 1;
+        while (customSlotOf(collidingKey) != slot) {
+            collidingKey++;
+        }
+
+        StateRegistry registry = new StateRegistry();
+        StateRegistry.Record record = registry.obtainCustom(key);
+        StateRegistry.Record collidingRecord = registry.obtainCustom(collidingKey);
+
+        assertSame(record, registry.recordAt(SYSTEM_STATE_COUNT + slot));
+        assertSame(collidingRecord, registry.recordAt(SYSTEM_STATE_COUNT + (slot + 1) % INITIAL_CUSTOM_CAPACITY));
+        assertSame(record, registry.get(key, true));
+        assertSame(collidingRecord, registry.get(collidingKey, true));
+    }
+
+    @Test
+    public void growsPastThreeQuartersLoadKeepingRecords() {
+        StateRegistry registry = new StateRegistry();
+        int fullSize = INITIAL_CUSTOM_CAPACITY * 3 / 4;
+        StateRegistry.Record[] records = new StateRegistry.Record[fullSize + 1];
+        for (int i = 0; i < fullSize; i++) {
+            records[i] = registry.obtainCustom(i * 31);
+        }
+        assertEquals(SYSTEM_STATE_COUNT + INITIAL_CUSTOM_CAPACITY, registry.slotCount());
+
+        records[fullSize] = registry.obtainCustom(fullSize * 31);
+
+        assertEquals(SYSTEM_STATE_COUNT + INITIAL_CUSTOM_CAPACITY * 2, registry.slotCount());
+        for (int i = 0; i < records.length; i++) {
+            assertSame(records[i], registry.get(i * 31, true));
+        }
+        assertEquals(records.length, countCustomRecords(registry));
+    }
+
+    @Test
+    public void manyKeysStayReachable() {
+        StateRegistry registry = new StateRegistry();
+        int count = 1000;
+        StateRegistry.Record[] records = new StateRegistry.Record[count];
+        for (int i = 0; i < count; i++) {
+            records[i] = registry.obtainCustom(i - count / 2);
+        }
+        for (int i = 0; i < count; i++) {
+            assertSame(records[i], registry.get(i - count / 2, true));
+        }
+        assertEquals(count, countCustomRecords(registry));
+    }
+
+    @Test
+    public void flags() {
+        StateRegistry.Record record = new StateRegistry().obtainCustom(100);
+        assertFalse(record.hasFlag(StateRegistry.Record.FLAG_INFLATED));
+
+        record.flags |= StateRegistry.Record.FLAG_INFLATED | StateRegistry.Record.FLAG_WARM;
+        assertTrue(record.hasFlag(StateRegistry.Record.FLAG_INFLATED));
+        assertTrue(record.hasFlag(StateRegistry.Record.FLAG_WARM));
+        assertTrue(record.hasFlag(StateRegistry.Record.FLAG_INFLATED | StateRegistry.Record.FLAG_POOLED));
+        assertFalse(record.hasFlag(StateRegistry.Record.FLAG_POOLED));
+
+        record.flags &= ~StateRegistry.Record.FLAG_INFLATED;
+        assertFalse(record.hasFlag(StateRegistry.Record.FLAG_INFLATED));
+        assertTrue(record.hasFlag(StateRegistry.Record.FLAG_WARM));
+    }
+
+    /**
+     * @return slot of key within the custom table when it is the only custom key
+     */
+    private static int customSlotOf(int key) {
+        StateRegistry registry = new StateRegistry();
+        StateRegistry.Record record = registry.obtainCustom(key);
+        for (int slot = 0; slot < INITIAL_CUSTOM_CAPACITY; slot++) {
+            if (registry.recordAt(SYSTEM_STATE_COUNT + slot) == record) {
+                return slot;
+            }
+        }
+        throw new AssertionError("custom record not found");
+    }
+
+    private static int countCustomRecords(StateRegistry registry) {
+        int count = 0;
+        for (int slot = SYSTEM_STATE_COUNT; slot < registry.slotCount(); slot++) {
+            if (null != registry.recordAt(slot)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 andy (https://github.com/andyxialm)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.refactor.multistatelayout;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Minimal JVM benchmark harness. Each iteration runs an untimed setup step and a
+ * timed step, returning the median time and the bytes allocated per timed step. Allocation is
+ * read from com.sun.management.ThreadMXBean when the JVM supports it, -1 otherwise.
+ * Every result is appended to build/reports/benchmark/transitions.txt, started afresh
+ * by the first result of a run, so that regressions show up in local runs.
+ */
+final class TransitionBenchmark {
+
+    interface Step {
+        void run(int iteration);
+    }
+
+    static final class Result {
+        final String name;
+        final long medianNanos;
+        final long minNanos;
+        final long bytesPerOp;
+
+        Result(String name, long medianNanos, long minNanos, long bytesPerOp) {
+            this.name = name;
+            this.medianNanos = medianNanos;
+            this.minNanos = minNanos;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s median %8d ns  min %8d ns  alloc %8d B/op", name, medianNanos, minNanos, bytesPerOp);
+        }
+    }
+
+    private static final String REPORT_DIR_PROPERTY = "transitionBenchmark.reportDir";
+    private static final String REPORT_FILE_NAME = "transitions.txt";
+
+    private static boolean sReportStarted;
+
+    private static final Step NO_SETUP = new Step() {
+        @Override
+        public void run(int iteration) {
+        }
+    };
+
+    private TransitionBenchmark() {
+    }
+
+    static Result measure(String name, int warmup, int iterations, Step step) {
+        return measure(name, warmup, iterations, NO_SETUP, step);
+    }
+
+    static Result measure(String name, int warmup, int iterations, Step setup, Step step) {
+        for (int i = 0; i < warmup; i++) {
+            setup.run(i);
+            step.run(i);
+        }
+        long[] durations = new long[iterations];
+        long allocatedBytes = 0;
+        boolean allocationSupported = true;
+        for (int i = 0; i < iterations; i++) {
+            setup.run(warmup + i);
+            long startBytes = allocatedBytes();
+            long startTime = System.nanoTime();
+            step.run(warmup + i);
+            durations[i] = System.nanoTime() - startTime;
+            long endBytes = allocatedBytes();
+            if (startBytes < 0 || endBytes < 0) {
+                allocationSupported = false;
+            } else {
+                allocatedBytes += endBytes - startBytes;
+            }
+        }
+        Arrays.sort(durations);
+        return report(new Result(name, durations[iterations / 2], durations[0],
+                allocationSupported ? allocatedBytes / iterations : -1));
+    }
+
+    private static Result report(Result result) {
+        File dir = new File(System.getProperty(REPORT_DIR_PROPERTY, "build/reports/benchmark"));
+        File file = new File(dir, REPORT_FILE_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("Could not create " + dir);
+        }
+        try {
+            Writer writer = new FileWriter(file, sReportStarted);
+            try {
+                writer.write(result.toString());
+                writer.write('\n');
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write " + file, e);
+        }
+        sReportStarted = true;
+        return result;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}